@@ -0,0 +1,76 @@
+package com.nineleaps.leaps.analytics;
+
+import com.nineleaps.leaps.dto.dashboard.DashboardSummaryDto;
+import com.nineleaps.leaps.dto.orders.OrderItemsData;
+import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
+
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.nineleaps.leaps.config.MessageStrings.TOTAL_INCOME;
+import static com.nineleaps.leaps.config.MessageStrings.TOTAL_NUMBER;
+
+//running totals for all dashboard views, fed one row at a time
+class DashboardAccumulator {
+
+    private int totalOrderItems;
+    private double totalEarnings;
+    private final Map<YearMonth, MonthTotals> monthTotals = new HashMap<>();
+    private final Map<YearMonth, List<OrderReceivedDto>> monthlyOrderItems = new HashMap<>();
+    private final Map<YearMonth, Map<String, OrderItemsData>> subcategoriesAnalytics = new HashMap<>();
+    private final Map<YearMonth, Map<String, OrderItemsData>> categoriesAnalytics = new HashMap<>();
+
+    void add(OrderItemRow row) {
+        totalOrderItems += 1;
+        totalEarnings += row.earnings;
+        MonthTotals totals = monthTotals.computeIfAbsent(row.month, k -> new MonthTotals());
+        totals.quantity += row.quantity;
+        totals.earnings += row.earnings;
+
+        // one dto per order item, shared by the month list and every category it falls under
+        monthlyOrderItems.computeIfAbsent(row.month, k -> new ArrayList<>()).add(row.orderReceivedDto);
+        Map<String, OrderItemsData> subcategoriesPerMonth = subcategoriesAnalytics.computeIfAbsent(row.month, k -> new HashMap<>());
+        for (String subcategoryName : row.subcategoryNames) {
+            subcategoriesPerMonth.computeIfAbsent(subcategoryName, k -> new OrderItemsData()).addOrderItem(row.orderReceivedDto, row.quantity);
+        }
+        Map<String, OrderItemsData> categoriesPerMonth = categoriesAnalytics.computeIfAbsent(row.month, k -> new HashMap<>());
+        for (String categoryName : row.categoryNames) {
+            categoriesPerMonth.computeIfAbsent(categoryName, k -> new OrderItemsData()).addOrderItem(row.orderReceivedDto, row.quantity);
+        }
+    }
+
+    DashboardSummaryDto toSummary() {
+        Map<String, Object> ownerView = new HashMap<>();
+        ownerView.put(TOTAL_NUMBER, totalOrderItems);
+        ownerView.put(TOTAL_INCOME, totalEarnings);
+
+        Map<YearMonth, Map<String, Object>> analytics = new HashMap<>();
+        Map<Year, Map<YearMonth, Map<String, Object>>> analyticsYearly = new HashMap<>();
+        for (Map.Entry<YearMonth, MonthTotals> monthEntry : monthTotals.entrySet()) {
+            YearMonth month = monthEntry.getKey();
+            Map<String, Object> monthData = new HashMap<>();
+            monthData.put(TOTAL_NUMBER, monthEntry.getValue().quantity);
+            monthData.put(TOTAL_INCOME, monthEntry.getValue().earnings);
+            analytics.put(month, monthData);
+            analyticsYearly.computeIfAbsent(Year.of(month.getYear()), k -> new HashMap<>()).put(month, monthData);
+        }
+
+        DashboardSummaryDto summary = new DashboardSummaryDto();
+        summary.setOwnerView(ownerView);
+        summary.setAnalytics(analytics);
+        summary.setAnalyticsYearly(analyticsYearly);
+        summary.setMonthlyOrderItems(monthlyOrderItems);
+        summary.setSubcategoriesAnalytics(subcategoriesAnalytics);
+        summary.setCategoriesAnalytics(categoriesAnalytics);
+        return summary;
+    }
+
+    private static class MonthTotals {
+        private int quantity;
+        private double earnings;
+    }
+}
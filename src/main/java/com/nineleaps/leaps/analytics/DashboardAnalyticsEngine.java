@@ -0,0 +1,45 @@
+package com.nineleaps.leaps.analytics;
+
+import com.nineleaps.leaps.dto.dashboard.DashboardSummaryDto;
+import com.nineleaps.leaps.model.User;
+import com.nineleaps.leaps.model.orders.OrderItem;
+import com.nineleaps.leaps.repository.OrderItemRepository;
+import com.nineleaps.leaps.repository.ProductRepository;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.stream.Stream;
+
+//computes all dashboard views of an owner from a single streamed read of the owner's order items. the work is
+//reading and copying the rows on the thread that owns the persistence context, folding them in is cheap, so it all
+//runs on the request thread
+@Component
+@Transactional
+public class DashboardAnalyticsEngine {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+
+    public DashboardAnalyticsEngine(OrderItemRepository orderItemRepository, ProductRepository productRepository, EntityManager entityManager) {
+        this.orderItemRepository = orderItemRepository;
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+    }
+
+    public DashboardSummaryDto summarize(User owner) {
+        DashboardAccumulator accumulator = new DashboardAccumulator();
+        // owner's products with their categories and subcategories already loaded, the streamed items resolve to these instances
+        productRepository.findByOwnerIdFetchCategories(owner.getId());
+        productRepository.findByOwnerIdFetchSubCategories(owner.getId());
+        try (Stream<OrderItem> orderItems = orderItemRepository.streamByOwnerId(owner.getId())) {
+            orderItems.forEach(orderItem -> {
+                accumulator.add(new OrderItemRow(orderItem));
+                // rows already copied out do not need to stay in the persistence context
+                entityManager.detach(orderItem);
+            });
+        }
+        return accumulator.toSummary();
+    }
+}
@@ -0,0 +1,126 @@
+package com.nineleaps.leaps.analytics;
+
+import com.nineleaps.leaps.enums.TimeResolution;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//daily earnings and quantity counters of one owner with week, month and year rollups kept up to date on every add.
+//buckets are keyed by the epoch day their period starts on, a range is summed from the coarsest buckets that fit inside it
+public class EarningsSeries {
+
+    private static final TimeResolution[] COARSEST_FIRST = {TimeResolution.YEAR, TimeResolution.MONTH, TimeResolution.WEEK, TimeResolution.DAY};
+
+    private final Map<TimeResolution, TreeMap<Long, Bucket>> buckets = new EnumMap<>(TimeResolution.class);
+
+    public EarningsSeries() {
+        for (TimeResolution resolution : TimeResolution.values()) {
+            buckets.put(resolution, new TreeMap<>());
+        }
+    }
+
+    public void add(LocalDate day, int quantity, double earnings) {
+        add(day, TimeResolution.DAY, 1, quantity, earnings);
+    }
+
+    //counters already summed over a whole period, e.g. a row of a daily or monthly rollup. they go to that period and
+    //the coarser ones holding it; a month is not spread over weeks, so sum and points only use weeks of added days
+    public void add(LocalDate periodStart, TimeResolution period, long orderItems, long quantity, double earnings) {
+        for (TimeResolution resolution : TimeResolution.values()) {
+            if (resolution.compareTo(period) < 0 || (resolution == TimeResolution.WEEK && period != TimeResolution.DAY)) {
+                continue;
+            }
+            Bucket bucket = buckets.get(resolution).computeIfAbsent(resolution.periodStart(periodStart).toEpochDay(), k -> new Bucket());
+            bucket.orderItems += orderItems;
+            bucket.quantity += quantity;
+            bucket.earnings += earnings;
+        }
+    }
+
+    //totals between the two days, both inclusive. walks by days and weeks up to the first month start, by months up to
+    //the first year start, then by years and back down the same way, so a range costs a few dozen lookups at most
+    public Bucket sum(LocalDate from, LocalDate to) {
+        Bucket total = new Bucket();
+        LocalDate day = from;
+        while (!day.isAfter(to)) {
+            for (TimeResolution resolution : COARSEST_FIRST) {
+                LocalDate periodEnd = resolution.periodEnd(day);
+                // DAY always fits, so every step moves past at least one day. a week running into the next month would
+                // keep the walk off month starts for the rest of the range
+                if (resolution.periodStart(day).equals(day) && !periodEnd.isAfter(to)
+                        && (resolution != TimeResolution.WEEK || periodEnd.getMonth() == day.getMonth())) {
+                    total.add(buckets.get(resolution).get(day.toEpochDay()));
+                    day = periodEnd.plusDays(1);
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    //non empty periods of the resolution overlapping the range, in order; periods cut by the range only count the days inside it
+    public List<Point> points(LocalDate from, LocalDate to, TimeResolution resolution) {
+        List<Point> points = new ArrayList<>();
+        long first = resolution.periodStart(from).toEpochDay();
+        long last = resolution.periodStart(to).toEpochDay();
+        for (Map.Entry<Long, Bucket> entry : buckets.get(resolution).subMap(first, true, last, true).entrySet()) {
+            LocalDate periodStart = LocalDate.ofEpochDay(entry.getKey());
+            LocalDate periodEnd = resolution.periodEnd(periodStart);
+            boolean cut = periodStart.isBefore(from) || periodEnd.isAfter(to);
+            Bucket bucket = new Bucket();
+            bucket.add(cut ? sum(periodStart.isBefore(from) ? from : periodStart, periodEnd.isAfter(to) ? to : periodEnd) : entry.getValue());
+            if (bucket.orderItems > 0) {
+                points.add(new Point(periodStart, bucket));
+            }
+        }
+        return points;
+    }
+
+    public static class Bucket {
+        private long orderItems;
+        private long quantity;
+        private double earnings;
+
+        private void add(Bucket other) {
+            if (other != null) {
+                orderItems += other.orderItems;
+                quantity += other.quantity;
+                earnings += other.earnings;
+            }
+        }
+
+        public long getOrderItems() {
+            return orderItems;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public double getEarnings() {
+            return earnings;
+        }
+    }
+
+    public static class Point {
+        private final LocalDate periodStart;
+        private final Bucket bucket;
+
+        private Point(LocalDate periodStart, Bucket bucket) {
+            this.periodStart = periodStart;
+            this.bucket = bucket;
+        }
+
+        public LocalDate getPeriodStart() {
+            return periodStart;
+        }
+
+        public Bucket getBucket() {
+            return bucket;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.nineleaps.leaps.analytics;
+
+import java.util.Arrays;
+
+//growable list of primitive ints, avoids boxing row numbers
+class IntList {
+
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,363 @@
+package com.nineleaps.leaps.analytics;
+
+import com.nineleaps.leaps.dto.orders.OrderItemFactView;
+import com.nineleaps.leaps.enums.TimeResolution;
+import com.nineleaps.leaps.model.orders.OrderItem;
+import com.nineleaps.leaps.repository.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+//in-process column store of order item facts, one primitive array per field, for allocation free dashboard aggregations.
+//loaded once at startup and appended to as orders are placed, so it only sees orders placed through this instance.
+//off by default; enable it with leaps.analytics.fact-store.enabled=true only when a single instance serves all orders
+@Component
+@Slf4j
+public class OrderItemFactStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final OrderItemRepository orderItemRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // row i of every column describes the same order item
+    private long[] orderItemIds = new long[INITIAL_CAPACITY];
+    private long[] ownerIds = new long[INITIAL_CAPACITY];
+    private long[] productIds = new long[INITIAL_CAPACITY];
+    private int[] rentalStartDays = new int[INITIAL_CAPACITY];
+    private int[] rentalStartMonths = new int[INITIAL_CAPACITY];
+    private int[] rentalDays = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int size;
+    private final Map<Long, IntList> rowsByOwner = new HashMap<>();
+    private final Map<Long, EarningsSeries> seriesByOwner = new HashMap<>();
+
+    // orders placed while the initial load runs, replayed once it is done
+    private final List<OrderItem> pendingOrderItems = new ArrayList<>();
+    private volatile boolean ready;
+
+    public OrderItemFactStore(OrderItemRepository orderItemRepository,
+                              @Value("${leaps.analytics.fact-store.enabled:false}") boolean enabled) {
+        this.orderItemRepository = orderItemRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try (Stream<OrderItemFactView> facts = orderItemRepository.streamAllFacts()) {
+            for (OrderItemFactView fact : (Iterable<OrderItemFactView>) facts::iterator) {
+                lock.writeLock().lock();
+                try {
+                    addRow(fact.getId(), fact.getOwnerId(), fact.getProductId(), fact.getRentalStartDate(), fact.getRentalEndDate(), fact.getQuantity(), fact.getPrice());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            // the load came in id order. ids are taken before commit, so a pending item below the last loaded id may have
+            // committed after the load passed it; only the ids actually loaded are skipped
+            int loaded = size;
+            for (OrderItem orderItem : pendingOrderItems) {
+                if (Arrays.binarySearch(orderItemIds, 0, loaded, orderItem.getId()) < 0) {
+                    addRow(orderItem);
+                }
+            }
+            pendingOrderItems.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} order item facts", size);
+    }
+
+    // adds the order item once the placing transaction has committed, a rolled back order never shows up
+    public void append(OrderItem orderItem) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appendNow(orderItem);
+                }
+            });
+        } else {
+            appendNow(orderItem);
+        }
+    }
+
+    public OwnerTotals ownerTotals(Long ownerId) {
+        OwnerTotals totals = new OwnerTotals();
+        lock.readLock().lock();
+        try {
+            IntList rows = rowsByOwner.get(ownerId);
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                int row = rows.get(i);
+                totals.orderItems += 1;
+                totals.earnings += earnings(row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return totals;
+    }
+
+    public MonthlyTotals monthlyTotals(Long ownerId) {
+        lock.readLock().lock();
+        try {
+            IntList rows = rowsByOwner.get(ownerId);
+            if (rows == null || rows.size() == 0) {
+                return new MonthlyTotals(0, 0);
+            }
+            // first pass finds the month range so the second can add into plain arrays
+            int firstMonth = Integer.MAX_VALUE;
+            int lastMonth = Integer.MIN_VALUE;
+            for (int i = 0; i < rows.size(); i++) {
+                int month = rentalStartMonths[rows.get(i)];
+                firstMonth = Math.min(firstMonth, month);
+                lastMonth = Math.max(lastMonth, month);
+            }
+            MonthlyTotals totals = new MonthlyTotals(firstMonth, lastMonth - firstMonth + 1);
+            for (int i = 0; i < rows.size(); i++) {
+                int row = rows.get(i);
+                int index = rentalStartMonths[row] - firstMonth;
+                totals.orderItems[index] += 1;
+                totals.quantities[index] += quantities[row];
+                totals.earnings[index] += earnings(row);
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //best n products of the owner among order items starting between the two epoch days, both inclusive.
+    //summing needs one entry per product the owner rented out in the window; picking the best from those takes a
+    //min-heap of size n instead of sorting them all, O(products log n) time
+    public List<ProductTotals> topProducts(Long ownerId, long fromDay, long toDay, int n) {
+        Map<Long, ProductTotals> totalsByProduct = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            IntList rows = rowsByOwner.get(ownerId);
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                int row = rows.get(i);
+                if (rentalStartDays[row] < fromDay || rentalStartDays[row] > toDay) {
+                    continue;
+                }
+                ProductTotals totals = totalsByProduct.computeIfAbsent(productIds[row], ProductTotals::new);
+                totals.orderItems += 1;
+                totals.quantity += quantities[row];
+                totals.earnings += earnings(row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        PriorityQueue<ProductTotals> best = new PriorityQueue<>(n, ProductTotals.RANKING);
+        for (ProductTotals totals : totalsByProduct.values()) {
+            if (best.size() < n) {
+                best.add(totals);
+            } else if (ProductTotals.RANKING.compare(totals, best.peek()) > 0) {
+                best.poll();
+                best.add(totals);
+            }
+        }
+        List<ProductTotals> result = new ArrayList<>(best);
+        result.sort(Collections.reverseOrder(ProductTotals.RANKING));
+        return result;
+    }
+
+    //totals between the two days, both inclusive, and the non empty buckets of the resolution in between
+    public EarningsSeriesResult earningsSeries(Long ownerId, LocalDate from, LocalDate to, TimeResolution resolution) {
+        lock.readLock().lock();
+        try {
+            EarningsSeries series = seriesByOwner.getOrDefault(ownerId, new EarningsSeries());
+            return new EarningsSeriesResult(series.sum(from, to), series.points(from, to, resolution));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void appendNow(OrderItem orderItem) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                addRow(orderItem);
+            } else {
+                pendingOrderItems.add(orderItem);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double earnings(int row) {
+        return prices[row] * quantities[row] * rentalDays[row];
+    }
+
+    private void addRow(OrderItem orderItem) {
+        addRow(orderItem.getId(), orderItem.getOwnerId(), orderItem.getProduct().getId(), orderItem.getRentalStartDate(), orderItem.getRentalEndDate(), orderItem.getQuantity(), orderItem.getPrice());
+    }
+
+    // callers hold the write lock
+    private void addRow(long orderItemId, long ownerId, long productId, LocalDateTime rentalStartDate, LocalDateTime rentalEndDate, int quantity, double price) {
+        if (size == orderItemIds.length) {
+            grow();
+        }
+        orderItemIds[size] = orderItemId;
+        ownerIds[size] = ownerId;
+        productIds[size] = productId;
+        rentalStartDays[size] = (int) rentalStartDate.toLocalDate().toEpochDay();
+        rentalStartMonths[size] = rentalStartDate.getYear() * 12 + rentalStartDate.getMonthValue() - 1;
+        rentalDays[size] = (int) ChronoUnit.DAYS.between(rentalStartDate, rentalEndDate);
+        quantities[size] = quantity;
+        prices[size] = price;
+        rowsByOwner.computeIfAbsent(ownerId, k -> new IntList()).add(size);
+        seriesByOwner.computeIfAbsent(ownerId, k -> new EarningsSeries()).add(rentalStartDate.toLocalDate(), quantity, earnings(size));
+        size++;
+    }
+
+    private void grow() {
+        int capacity = orderItemIds.length * 2;
+        orderItemIds = Arrays.copyOf(orderItemIds, capacity);
+        ownerIds = Arrays.copyOf(ownerIds, capacity);
+        productIds = Arrays.copyOf(productIds, capacity);
+        rentalStartDays = Arrays.copyOf(rentalStartDays, capacity);
+        rentalStartMonths = Arrays.copyOf(rentalStartMonths, capacity);
+        rentalDays = Arrays.copyOf(rentalDays, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+    }
+
+    public static class OwnerTotals {
+        private int orderItems;
+        private double earnings;
+
+        public int getOrderItems() {
+            return orderItems;
+        }
+
+        public double getEarnings() {
+            return earnings;
+        }
+    }
+
+    public static class EarningsSeriesResult {
+        private final EarningsSeries.Bucket total;
+        private final List<EarningsSeries.Point> points;
+
+        private EarningsSeriesResult(EarningsSeries.Bucket total, List<EarningsSeries.Point> points) {
+            this.total = total;
+            this.points = points;
+        }
+
+        public EarningsSeries.Bucket getTotal() {
+            return total;
+        }
+
+        public List<EarningsSeries.Point> getPoints() {
+            return points;
+        }
+    }
+
+    public static class ProductTotals {
+        // worst first: least quantity, then least earnings, then the higher product id
+        private static final Comparator<ProductTotals> RANKING = Comparator.comparingLong(ProductTotals::getQuantity)
+                .thenComparingDouble(ProductTotals::getEarnings)
+                .thenComparing(ProductTotals::getProductId, Comparator.reverseOrder());
+
+        private final long productId;
+        private long orderItems;
+        private long quantity;
+        private double earnings;
+
+        private ProductTotals(long productId) {
+            this.productId = productId;
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+
+        public long getOrderItems() {
+            return orderItems;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public double getEarnings() {
+            return earnings;
+        }
+    }
+
+    //totals per month of rental start, index 0 is firstMonth; months without order items have orderItems 0
+    public static class MonthlyTotals {
+        private final int firstMonth;
+        private final int[] orderItems;
+        private final int[] quantities;
+        private final double[] earnings;
+
+        private MonthlyTotals(int firstMonth, int months) {
+            this.firstMonth = firstMonth;
+            this.orderItems = new int[months];
+            this.quantities = new int[months];
+            this.earnings = new double[months];
+        }
+
+        public int size() {
+            return orderItems.length;
+        }
+
+        public YearMonth month(int index) {
+            int month = firstMonth + index;
+            return YearMonth.of(month / 12, month % 12 + 1);
+        }
+
+        public int orderItems(int index) {
+            return orderItems[index];
+        }
+
+        public int quantity(int index) {
+            return quantities[index];
+        }
+
+        public double earnings(int index) {
+            return earnings[index];
+        }
+    }
+}
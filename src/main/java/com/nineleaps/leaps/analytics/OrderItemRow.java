@@ -0,0 +1,32 @@
+package com.nineleaps.leaps.analytics;
+
+import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
+import com.nineleaps.leaps.model.categories.Category;
+import com.nineleaps.leaps.model.categories.SubCategory;
+import com.nineleaps.leaps.model.orders.OrderItem;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//detached copy of what the dashboard needs from an order item, so the entity can leave the persistence context at once
+class OrderItemRow {
+
+    final OrderReceivedDto orderReceivedDto;
+    final YearMonth month;
+    final int quantity;
+    final double earnings;
+    final List<String> categoryNames;
+    final List<String> subcategoryNames;
+
+    OrderItemRow(OrderItem orderItem) {
+        this.orderReceivedDto = new OrderReceivedDto(orderItem);
+        this.month = YearMonth.from(orderItem.getRentalStartDate());
+        this.quantity = orderItem.getQuantity();
+        long rentalDurationInDays = ChronoUnit.DAYS.between(orderItem.getRentalStartDate(), orderItem.getRentalEndDate());
+        this.earnings = orderItem.getPrice() * quantity * rentalDurationInDays;
+        this.categoryNames = orderItem.getProduct().getCategories().stream().map(Category::getCategoryName).collect(Collectors.toList());
+        this.subcategoryNames = orderItem.getProduct().getSubCategories().stream().map(SubCategory::getSubcategoryName).collect(Collectors.toList());
+    }
+}
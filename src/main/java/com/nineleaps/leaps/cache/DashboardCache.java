@@ -0,0 +1,186 @@
+package com.nineleaps.leaps.cache;
+
+import com.nineleaps.leaps.dto.dashboard.DashboardSummaryDto;
+import com.nineleaps.leaps.dto.dashboard.EarningsPointDto;
+import com.nineleaps.leaps.dto.dashboard.EarningsSeriesDto;
+import com.nineleaps.leaps.dto.dashboard.OrderItemsPageDto;
+import com.nineleaps.leaps.dto.dashboard.TopProductDto;
+import com.nineleaps.leaps.dto.orders.OrderItemsData;
+import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+//dashboard results per owner and query parameters, dropped whenever one of the owner's order items changes.
+//callers get a copy they cannot change, the cached result is never handed out
+@Component
+public class DashboardCache {
+
+    private final LruCache<DashboardKey, Object> cache;
+    // bumped by every invalidation, a result loaded while the owner's generation moved on is not cached
+    private final Map<Long, Long> generations = new HashMap<>();
+    private long clearedGeneration;
+    private long lastGeneration;
+
+    public DashboardCache(@Value("${leaps.dashboard.cache.max-entries:1000}") int maxEntries,
+                          @Value("${leaps.dashboard.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = new LruCache<>(maxEntries, Duration.ofSeconds(ttlSeconds));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long ownerId, String view, Supplier<T> loader, Object... params) {
+        DashboardKey key = new DashboardKey(ownerId, view, Arrays.asList(params));
+        Object value = cache.get(key);
+        if (value == null) {
+            long generation = generation(ownerId);
+            value = loader.get();
+            if (value != null) {
+                putIfCurrent(key, value, generation);
+            }
+        }
+        return (T) immutableCopy(value);
+    }
+
+    // drops the owner's entries now and again once the surrounding transaction commits. a read that started before
+    // the commit may have seen the old rows, the second bump keeps it from caching them
+    public void invalidateOwner(Long ownerId) {
+        if (ownerId == null) {
+            return;
+        }
+        bump(ownerId);
+        afterCommit(() -> bump(ownerId));
+    }
+
+    public void invalidateAll() {
+        clear();
+        afterCommit(this::clear);
+    }
+
+    public Map<String, Long> stats() {
+        return cache.stats();
+    }
+
+    private synchronized long generation(Long ownerId) {
+        return Math.max(clearedGeneration, generations.getOrDefault(ownerId, 0L));
+    }
+
+    private synchronized void putIfCurrent(DashboardKey key, Object value, long generation) {
+        if (generation(key.ownerId) == generation) {
+            cache.put(key, value);
+        }
+    }
+
+    private synchronized void bump(Long ownerId) {
+        generations.put(ownerId, ++lastGeneration);
+        cache.removeIf(key -> Objects.equals(key.ownerId, ownerId));
+    }
+
+    private synchronized void clear() {
+        // every owner is behind the cleared generation now, their own entries are no longer needed
+        clearedGeneration = ++lastGeneration;
+        generations.clear();
+        cache.clear();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    // maps and lists come back unmodifiable and dtos as new instances, all the way down. anything else in a cached
+    // result (numbers, strings, dates) is an immutable value already
+    @SuppressWarnings("unchecked")
+    private static Object immutableCopy(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<Object, Object>) value).forEach((key, entry) -> copy.put(key, immutableCopy(entry)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<Object>) value).size());
+            ((List<Object>) value).forEach(element -> copy.add(immutableCopy(element)));
+            return Collections.unmodifiableList(copy);
+        }
+        if (value instanceof DashboardSummaryDto) {
+            DashboardSummaryDto summary = (DashboardSummaryDto) value;
+            DashboardSummaryDto copy = new DashboardSummaryDto();
+            copy.setOwnerView((Map<String, Object>) immutableCopy(summary.getOwnerView()));
+            copy.setAnalytics((Map<YearMonth, Map<String, Object>>) immutableCopy(summary.getAnalytics()));
+            copy.setAnalyticsYearly((Map<Year, Map<YearMonth, Map<String, Object>>>) immutableCopy(summary.getAnalyticsYearly()));
+            copy.setMonthlyOrderItems((Map<YearMonth, List<OrderReceivedDto>>) immutableCopy(summary.getMonthlyOrderItems()));
+            copy.setSubcategoriesAnalytics((Map<YearMonth, Map<String, OrderItemsData>>) immutableCopy(summary.getSubcategoriesAnalytics()));
+            copy.setCategoriesAnalytics((Map<YearMonth, Map<String, OrderItemsData>>) immutableCopy(summary.getCategoriesAnalytics()));
+            return copy;
+        }
+        if (value instanceof OrderItemsData) {
+            OrderItemsData orderItemsData = (OrderItemsData) value;
+            OrderItemsData copy = new OrderItemsData();
+            copy.setOrderItems((List<OrderReceivedDto>) immutableCopy(orderItemsData.getOrderItems()));
+            copy.setTotalOrders(orderItemsData.getTotalOrders());
+            return copy;
+        }
+        if (value instanceof OrderReceivedDto) {
+            return new OrderReceivedDto((OrderReceivedDto) value);
+        }
+        if (value instanceof TopProductDto) {
+            TopProductDto topProduct = (TopProductDto) value;
+            return new TopProductDto(topProduct.getProductId(), topProduct.getName(), topProduct.getOrderItems(), topProduct.getQuantity(), topProduct.getEarnings());
+        }
+        if (value instanceof EarningsSeriesDto) {
+            EarningsSeriesDto series = (EarningsSeriesDto) value;
+            EarningsSeriesDto copy = new EarningsSeriesDto();
+            copy.setFrom(series.getFrom());
+            copy.setTo(series.getTo());
+            copy.setResolution(series.getResolution());
+            copy.setOrderItems(series.getOrderItems());
+            copy.setQuantity(series.getQuantity());
+            copy.setEarnings(series.getEarnings());
+            copy.setPoints((List<EarningsPointDto>) immutableCopy(series.getPoints()));
+            return copy;
+        }
+        if (value instanceof OrderItemsPageDto) {
+            OrderItemsPageDto page = (OrderItemsPageDto) value;
+            OrderItemsPageDto copy = new OrderItemsPageDto();
+            copy.setOrderItems((Map<YearMonth, List<OrderReceivedDto>>) immutableCopy(page.getOrderItems()));
+            copy.setHasMore(page.isHasMore());
+            copy.setNextCursorDate(page.getNextCursorDate());
+            copy.setNextCursorId(page.getNextCursorId());
+            return copy;
+        }
+        if (value instanceof EarningsPointDto) {
+            EarningsPointDto point = (EarningsPointDto) value;
+            return new EarningsPointDto(point.getPeriodStart(), point.getOrderItems(), point.getQuantity(), point.getEarnings());
+        }
+        return value;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class DashboardKey {
+        private final Long ownerId;
+        private final String view;
+        private final List<Object> params;
+    }
+}
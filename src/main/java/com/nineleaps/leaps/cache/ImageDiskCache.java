@@ -0,0 +1,232 @@
+package com.nineleaps.leaps.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+//read-through copy of s3 images on local disk, capped in bytes and evicting the least recently served file.
+//small files are also kept in heap. the directory is emptied on startup since the index only lives in memory.
+//every fill gets a file of its own, and a file that is evicted or invalidated is only deleted a while later:
+//tomcat opens a file handed to sendfile after the request thread has returned, so it must outlive the lookup
+@Component
+@Slf4j
+public class ImageDiskCache {
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int heapMaxFileBytes;
+    private final long retiredFileDelayNanos;
+    private final LruCache<String, byte[]> heapTier;
+    // in access order
+    private final LinkedHashMap<String, CachedImage> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    // fills still copying, per key; invalidating a key makes its running fills stale
+    private final Map<String, Set<Fill>> runningFills = new HashMap<>();
+    private final Queue<RetiredFile> retiredFiles = new ConcurrentLinkedQueue<>();
+
+    public ImageDiskCache(@Value("${leaps.image-cache.directory:${java.io.tmpdir}/leaps-images}") String directory,
+                          @Value("${leaps.image-cache.max-bytes:1073741824}") long maxBytes,
+                          @Value("${leaps.image-cache.heap.max-entries:500}") int heapMaxEntries,
+                          @Value("${leaps.image-cache.heap.max-file-bytes:65536}") int heapMaxFileBytes,
+                          @Value("${leaps.image-cache.retired-file-delay:PT1M}") Duration retiredFileDelay) throws IOException {
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.maxBytes = maxBytes;
+        this.heapMaxFileBytes = heapMaxFileBytes;
+        this.retiredFileDelayNanos = retiredFileDelay.toNanos();
+        this.heapTier = new LruCache<>(heapMaxEntries, Duration.ZERO);
+        purge();
+    }
+
+    //the cached image with its s3 metadata, its bytes are included when it is in the heap tier
+    public CachedImage get(String key) {
+        CachedImage image;
+        synchronized (this) {
+            image = index.get(key);
+        }
+        if (image == null) {
+            return null;
+        }
+        byte[] bytes = heapTier.get(key);
+        return bytes == null ? image : image.withBytes(bytes);
+    }
+
+    //to be started before the object is read from storage and closed when the fill is done
+    public synchronized Fill beginFill(String key) {
+        Fill fill = new Fill(key);
+        runningFills.computeIfAbsent(key, k -> new HashSet<>()).add(fill);
+        return fill;
+    }
+
+    //copies the stream into the cache and returns the cached image, or null if the key was invalidated while the fill ran
+    public CachedImage put(Fill fill, InputStream inputStream, String eTag, long lastModified) throws IOException {
+        Path file = directory.resolve(UUID.randomUUID() + ".img");
+        long size;
+        try {
+            size = Files.copy(inputStream, file);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        CachedImage image = new CachedImage(file, size, eTag, lastModified, null);
+        synchronized (this) {
+            if (fill.stale) {
+                retire(file);
+                return null;
+            }
+            CachedImage previous = index.put(fill.key, image);
+            if (previous != null) {
+                totalBytes -= previous.size;
+                retire(previous.file);
+            }
+            totalBytes += size;
+            Iterator<Map.Entry<String, CachedImage>> eldest = index.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, CachedImage> entry = eldest.next();
+                if (entry.getKey().equals(fill.key)) {
+                    continue;
+                }
+                totalBytes -= entry.getValue().size;
+                retire(entry.getValue().file);
+                heapTier.remove(entry.getKey());
+                eldest.remove();
+            }
+        }
+        if (size <= heapMaxFileBytes) {
+            byte[] bytes = Files.readAllBytes(file);
+            heapTier.put(fill.key, bytes);
+            return image.withBytes(bytes);
+        }
+        return image;
+    }
+
+    public void invalidate(String key) {
+        synchronized (this) {
+            runningFills.getOrDefault(key, Set.of()).forEach(fill -> fill.stale = true);
+            CachedImage image = index.remove(key);
+            if (image != null) {
+                totalBytes -= image.size;
+                retire(image.file);
+            }
+        }
+        heapTier.remove(key);
+    }
+
+    @Scheduled(fixedDelayString = "${leaps.image-cache.retired-file-sweep-ms:30000}")
+    public void deleteRetiredFiles() {
+        long now = System.nanoTime();
+        RetiredFile retired;
+        while ((retired = retiredFiles.peek()) != null && now - retired.retiredAt >= retiredFileDelayNanos) {
+            retiredFiles.poll();
+            deleteQuietly(retired.file);
+        }
+    }
+
+    private void retire(Path file) {
+        retiredFiles.add(new RetiredFile(file, System.nanoTime()));
+    }
+
+    private synchronized void endFill(Fill fill) {
+        Set<Fill> fills = runningFills.get(fill.key);
+        if (fills != null && fills.remove(fill) && fills.isEmpty()) {
+            runningFills.remove(fill.key);
+        }
+    }
+
+    private void purge() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(this::deleteQuietly);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached image {}", file, e);
+        }
+    }
+
+    public class Fill implements AutoCloseable {
+        private final String key;
+        // guarded by the cache
+        private boolean stale;
+
+        private Fill(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            endFill(this);
+        }
+    }
+
+    private static class RetiredFile {
+        private final Path file;
+        private final long retiredAt;
+
+        private RetiredFile(Path file, long retiredAt) {
+            this.file = file;
+            this.retiredAt = retiredAt;
+        }
+    }
+
+    public static class CachedImage {
+        private final Path file;
+        private final long size;
+        private final String eTag;
+        private final long lastModified;
+        private final byte[] bytes;
+
+        private CachedImage(Path file, long size, String eTag, long lastModified, byte[] bytes) {
+            this.file = file;
+            this.size = size;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.bytes = bytes;
+        }
+
+        private CachedImage withBytes(byte[] bytes) {
+            return new CachedImage(file, size, eTag, lastModified, bytes);
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        // null unless the image is in the heap tier
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.nineleaps.leaps.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+//rendered invoices per order id and content version: recent ones in heap, on disk up to a size cap evicting the least
+//recently served. a changed order gets a new version, so entries never go stale and are only replaced.
+//the disk index is rebuilt from the directory on startup, oldest file first
+@Component
+@Slf4j
+public class InvoiceCache {
+
+    private final LruCache<String, byte[]> heapTier;
+    private final Path directory;
+    private final long maxBytes;
+    // file sizes by key, in access order
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public InvoiceCache(@Value("${leaps.invoice.cache.max-entries:200}") int maxEntries,
+                        @Value("${leaps.invoice.cache-directory:${java.io.tmpdir}/leaps-invoices}") String directory,
+                        @Value("${leaps.invoice.cache-max-bytes:268435456}") long maxBytes) throws IOException {
+        this.heapTier = new LruCache<>(maxEntries, Duration.ZERO);
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.maxBytes = maxBytes;
+        loadIndex();
+    }
+
+    public byte[] get(Long orderId, String version, InvoiceWriter writer) throws IOException {
+        String key = orderId + "-" + version;
+        byte[] invoice = heapTier.get(key);
+        if (invoice != null) {
+            touch(key);
+            return invoice;
+        }
+        invoice = readFromDisk(key);
+        if (invoice == null) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            writer.write(outputStream);
+            invoice = outputStream.toByteArray();
+            writeToDisk(key, invoice);
+            removeOlderVersions(orderId, key);
+        }
+        heapTier.put(key, invoice);
+        return invoice;
+    }
+
+    public Map<String, Long> stats() {
+        return heapTier.stats();
+    }
+
+    private synchronized void touch(String key) {
+        diskIndex.get(key);
+    }
+
+    // null when the invoice is not on disk, or was evicted between the lookup and the read
+    private byte[] readFromDisk(String key) throws IOException {
+        synchronized (this) {
+            if (diskIndex.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(fileFor(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // unique part file, two requests rendering the same invoice just replace each other's result
+    private void writeToDisk(String key, byte[] invoice) throws IOException {
+        Path partFile = directory.resolve(key + "." + UUID.randomUUID() + ".part");
+        try {
+            Files.write(partFile, invoice);
+            Files.move(partFile, fileFor(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+        List<Path> evicted;
+        synchronized (this) {
+            Long previous = diskIndex.put(key, (long) invoice.length);
+            totalBytes += invoice.length - (previous == null ? 0 : previous);
+            evicted = evictOverCap(key);
+        }
+        evicted.forEach(this::deleteQuietly);
+    }
+
+    // drops the least recently served entries, except the one just written, until the files fit in the cap
+    private List<Path> evictOverCap(String keep) {
+        List<Path> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> eldest = diskIndex.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            evicted.add(fileFor(entry.getKey()));
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    private void removeOlderVersions(Long orderId, String key) {
+        String prefix = orderId + "-";
+        heapTier.removeIf(cached -> cached.startsWith(prefix) && !cached.equals(key));
+        List<Path> older = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> entries = diskIndex.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Long> entry = entries.next();
+                if (entry.getKey().startsWith(prefix) && !entry.getKey().equals(key)) {
+                    totalBytes -= entry.getValue();
+                    older.add(fileFor(entry.getKey()));
+                    entries.remove();
+                }
+            }
+        }
+        older.forEach(this::deleteQuietly);
+    }
+
+    private void loadIndex() throws IOException {
+        Map<String, BasicFileAttributes> invoices = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    // left behind by a render that did not finish
+                    deleteQuietly(file);
+                } else if (name.endsWith(".pdf")) {
+                    invoices.put(name.substring(0, name.length() - ".pdf".length()), Files.readAttributes(file, BasicFileAttributes.class));
+                }
+            }
+        }
+        invoices.entrySet().stream()
+                .sorted(Comparator.comparing(invoice -> invoice.getValue().lastModifiedTime()))
+                .forEach(invoice -> {
+                    diskIndex.put(invoice.getKey(), invoice.getValue().size());
+                    totalBytes += invoice.getValue().size();
+                });
+        evictOverCap(null).forEach(this::deleteQuietly);
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + ".pdf");
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached invoice {}", file, e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface InvoiceWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+}
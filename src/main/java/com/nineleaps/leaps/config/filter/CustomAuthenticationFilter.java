@@ -4,6 +4,7 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nineleaps.leaps.config.security.JwtKeyManager;
 import com.nineleaps.leaps.exceptions.RuntimeCustomException;
 import com.nineleaps.leaps.repository.RefreshTokenRepository;
 import com.nineleaps.leaps.service.implementation.PushNotificationServiceImpl;
@@ -22,7 +23,6 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -37,6 +37,7 @@ public class CustomAuthenticationFilter extends UsernamePasswordAuthenticationFi
     private final AuthenticationManager authenticationManager;
     private final SecurityUtility securityUtility;
     private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtKeyManager jwtKeyManager;
 
 
 
@@ -77,10 +78,7 @@ public class CustomAuthenticationFilter extends UsernamePasswordAuthenticationFi
 
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Authentication authentication) throws IOException {
         User user = (User) authentication.getPrincipal();
-        String secretFilePath = "/Desktop"+"/leaps"+"/secret"+"/secret.txt";
-        String absolutePath = System.getProperty("user.home") + File.separator + secretFilePath;
-        String secret = securityUtility.readSecretFromFile(absolutePath);
-        Algorithm algorithm = Algorithm.HMAC256(secret.getBytes());
+        Algorithm algorithm = jwtKeyManager.algorithm();
         // Update access token expiration time dynamically
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime accessTokenExpirationTime = now.plusMinutes(2); // Update to desired expiration time 24hrs or one day
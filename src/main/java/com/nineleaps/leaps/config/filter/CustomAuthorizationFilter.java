@@ -1,9 +1,7 @@
 package com.nineleaps.leaps.config.filter;
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nineleaps.leaps.config.security.JwtKeyManager;
 import com.nineleaps.leaps.utils.SecurityUtility;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -14,7 +12,6 @@ import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -27,10 +24,12 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @Slf4j
 public class CustomAuthorizationFilter extends OncePerRequestFilter {
     private final SecurityUtility securityUtility;
+    private final JwtKeyManager jwtKeyManager;
     String bearerHeader = "Bearer ";
 
-    public CustomAuthorizationFilter(SecurityUtility securityUtility) {
+    public CustomAuthorizationFilter(SecurityUtility securityUtility, JwtKeyManager jwtKeyManager) {
         this.securityUtility = securityUtility;
+        this.jwtKeyManager = jwtKeyManager;
 
     }
 
@@ -92,12 +91,7 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
 
     private void handleAccessToken(String token, HttpServletResponse response, FilterChain filterChain, HttpServletRequest request) throws IOException, ServletException {
         if (!securityUtility.isAccessTokenExpired(token)) {
-            String secretFilePath = "Desktop/leaps/secret/secret.txt";
-            String absolutePath = System.getProperty("user.home") + File.separator + secretFilePath;
-            String secret = securityUtility.readSecretFromFile(absolutePath);
-            Algorithm algorithm = Algorithm.HMAC256(secret.getBytes());
-            JWTVerifier verifier = JWT.require(algorithm).build();
-            DecodedJWT decodedJWT = verifier.verify(token);
+            DecodedJWT decodedJWT = jwtKeyManager.verify(token);
             String email = decodedJWT.getSubject();
             String[] roles = decodedJWT.getClaim("roles").asArray(String.class);
             Collection<SimpleGrantedAuthority> authorities = new ArrayList<>();
@@ -0,0 +1,163 @@
+package com.nineleaps.leaps.config.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+//the jwt signing key, read from the secret file once and again whenever its directory changes. every token is signed
+//with the current key; after a rotation tokens signed with the previous key still verify for the grace period.
+//the whole directory is watched because a mounted kubernetes secret is swapped through its ..data symlink and the
+//file itself never reports an event
+@Component
+@Slf4j
+public class JwtKeyManager {
+
+    private final Path secretFile;
+    private final Duration previousKeyGrace;
+    private final Duration reloadDebounce;
+    private final AtomicReference<Keys> keys = new AtomicReference<>();
+    private WatchService watchService;
+
+    public JwtKeyManager(@Value("${leaps.jwt.secret-file:${user.home}/Desktop/leaps/secret/secret.txt}") String secretFile,
+                         @Value("${leaps.jwt.previous-key-grace:PT24H}") Duration previousKeyGrace,
+                         @Value("${leaps.jwt.reload-debounce:PT2S}") Duration reloadDebounce) {
+        this.secretFile = Paths.get(secretFile).toAbsolutePath();
+        this.previousKeyGrace = previousKeyGrace;
+        this.reloadDebounce = reloadDebounce;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        String secret = readSecret();
+        if (secret == null) {
+            throw new IllegalStateException("No jwt secret in " + secretFile);
+        }
+        keys.set(new Keys(new SigningKey(secret), Instant.now(), null, null));
+        watchService = secretFile.getFileSystem().newWatchService();
+        secretFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        Thread watcher = new Thread(this::watch, "jwt-key-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        // ends the watcher thread
+        watchService.close();
+    }
+
+    public Algorithm algorithm() {
+        return keys.get().current.algorithm;
+    }
+
+    // checks the signature and expiry, with the previous key as well while it is in its grace period
+    public DecodedJWT verify(String token) {
+        Keys snapshot = keys.get();
+        try {
+            return snapshot.current.verifier.verify(token);
+        } catch (SignatureVerificationException e) {
+            if (snapshot.previous == null || Instant.now().isAfter(snapshot.previousValidUntil)) {
+                throw e;
+            }
+            return snapshot.previous.verifier.verify(token);
+        }
+    }
+
+    void reload() {
+        String secret;
+        try {
+            secret = readSecret();
+        } catch (IOException e) {
+            log.warn("Could not read jwt secret from {}, keeping the current key", secretFile, e);
+            return;
+        }
+        Keys snapshot = keys.get();
+        // an empty file or the same secret is not a rotation, most events in the directory are not about the secret
+        if (secret == null || secret.equals(snapshot.current.secret)) {
+            return;
+        }
+        // a key replaced within the debounce period was a half written file, tokens were signed with the one before it
+        Instant now = Instant.now();
+        SigningKey previous = snapshot.previous == null || snapshot.currentSince.plus(reloadDebounce).isBefore(now) ? snapshot.current : snapshot.previous;
+        keys.set(new Keys(new SigningKey(secret), now, previous, now.plus(previousKeyGrace)));
+        log.info("Jwt signing key reloaded from {}, the previous key verifies until {}", secretFile, keys.get().previousValidUntil);
+    }
+
+    // reads the file once the directory has been quiet for the debounce period, a save or a symlink swap is a burst
+    // of events and only its end is worth reading
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(reloadDebounce.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // shut down
+        }
+    }
+
+    // the first line of the file, null when it is empty
+    private String readSecret() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(secretFile, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return line == null || line.isBlank() ? null : line;
+        }
+    }
+
+    private static class SigningKey {
+        private final String secret;
+        private final Algorithm algorithm;
+        private final JWTVerifier verifier;
+
+        SigningKey(String secret) {
+            this.secret = secret;
+            this.algorithm = Algorithm.HMAC256(secret.getBytes());
+            this.verifier = JWT.require(algorithm).build();
+        }
+    }
+
+    // swapped as a whole, so a request never sees a key without its verifier
+    private static class Keys {
+        private final SigningKey current;
+        private final Instant currentSince;
+        private final SigningKey previous;
+        private final Instant previousValidUntil;
+
+        Keys(SigningKey current, Instant currentSince, SigningKey previous, Instant previousValidUntil) {
+            this.current = current;
+            this.currentSince = currentSince;
+            this.previous = previous;
+            this.previousValidUntil = previousValidUntil;
+        }
+    }
+}
@@ -27,6 +27,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     private final PasswordEncoder passwordEncoder;
     private final RefreshTokenRepository refreshTokenRepository;
     private final SecurityUtility securityUtility;
+    private final JwtKeyManager jwtKeyManager;
     private  final String ROLE_OWNER = "OWNER";
     private  final String ROLE_BORROWER = "BORROWER";
     private  final String ROLE_GUEST = "GUEST";
@@ -39,7 +40,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
-        CustomAuthenticationFilter customAuthenticationFilter = new CustomAuthenticationFilter(authenticationManagerBean(), securityUtility, refreshTokenRepository);
+        CustomAuthenticationFilter customAuthenticationFilter = new CustomAuthenticationFilter(authenticationManagerBean(), securityUtility, refreshTokenRepository, jwtKeyManager);
         customAuthenticationFilter.setFilterProcessesUrl("/api/v1/login");
         http
                 .csrf().disable()
@@ -61,6 +62,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                         "/api/v1/product/listByPriceRange"
                 ).hasAnyAuthority(ROLE_OWNER, ROLE_BORROWER, ROLE_GUEST )
                 .antMatchers(HttpMethod.GET, "/api/v1/users").hasAuthority(ROLE_ADMIN)
+                .antMatchers(HttpMethod.POST, "/api/v1/dashboard/rebuild-stats").hasAuthority(ROLE_ADMIN)
+                .antMatchers(HttpMethod.GET, "/api/v1/dashboard/cache-stats").hasAuthority(ROLE_ADMIN)
+                .antMatchers(HttpMethod.GET, "/api/v1/order/invoices/export").hasAuthority(ROLE_ADMIN)
                 .antMatchers(
                         "/api/v1/address/add",
                         "/api/v1/address/update/**",
@@ -86,11 +90,17 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 ).hasAnyAuthority(ROLE_BORROWER, ROLE_OWNER)
                 .antMatchers(
                         "/api/v1/dashboard/owner-view",
-                        "/api/v1/dashboard/analytics"
+                        "/api/v1/dashboard/analytics",
+                        "/api/v1/dashboard/summary",
+                        "/api/v1/dashboard/top-products",
+                        "/api/v1/dashboard/earnings-series",
+                        "/api/v1/dashboard/export.csv",
+                        "/api/v1/pdf/jobs",
+                        "/api/v1/pdf/jobs/**"
                 ).hasAuthority(ROLE_OWNER)
                 .and()
                 .addFilter(customAuthenticationFilter)
-                .addFilterBefore(new CustomAuthorizationFilter(securityUtility), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new CustomAuthorizationFilter(securityUtility, jwtKeyManager), UsernamePasswordAuthenticationFilter.class);
     }
 
     @Bean
@@ -1,7 +1,13 @@
 package com.nineleaps.leaps.controller;
 
+import com.nineleaps.leaps.common.ApiResponse;
+import com.nineleaps.leaps.dto.dashboard.DashboardSummaryDto;
+import com.nineleaps.leaps.dto.dashboard.EarningsSeriesDto;
+import com.nineleaps.leaps.dto.dashboard.OrderItemsPageDto;
+import com.nineleaps.leaps.dto.dashboard.TopProductDto;
 import com.nineleaps.leaps.dto.orders.OrderItemsData;
 import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
+import com.nineleaps.leaps.enums.TimeResolution;
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.service.DashboardServiceInterface;
 import com.nineleaps.leaps.service.OrderServiceInterface;
@@ -9,14 +15,23 @@ import com.nineleaps.leaps.utils.Helper;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Year;
 import java.time.YearMonth;
@@ -44,6 +59,43 @@ public class DashboardController {
         return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
+    @ApiOperation(value = "Gives every dashboard view of the owner in one response")
+    @GetMapping("/summary")
+    public ResponseEntity<DashboardSummaryDto> summary(HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        DashboardSummaryDto body = dashboardService.summary(user);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Gives the owner's n most rented products, optionally only counting rentals starting between the dates")
+    @GetMapping("/top-products")
+    public ResponseEntity<List<TopProductDto>> topProducts(HttpServletRequest request, @RequestParam(value = "n", defaultValue = "5", required = false) int n,
+                                                           @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                           @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        List<TopProductDto> body = dashboardService.topProducts(user, n, from, to);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Gives the owner's earnings between the dates, in total and per day, week, month or year; defaults to the last year per month")
+    @GetMapping("/earnings-series")
+    public ResponseEntity<EarningsSeriesDto> earningsSeries(HttpServletRequest request,
+                                                            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(value = "resolution", defaultValue = "MONTH", required = false) TimeResolution resolution) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusYears(1).plusDays(1) : from;
+        EarningsSeriesDto body = dashboardService.earningsSeries(user, start, end, resolution);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
     @ApiOperation(value = "Gives details about how many orders the owner has got")
     @GetMapping("/analytics")
     public ResponseEntity<Map<YearMonth, Map<String, Object>>> onClickDashboard(HttpServletRequest request) {
@@ -91,12 +143,46 @@ public class DashboardController {
         return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
+    @ApiOperation(value = "Order items of the owner rented out between the dates, a page at a time; while hasMore is set pass nextCursorDate and nextCursorId back as cursorDate and cursorId")
     @GetMapping("/date-selector")
-    public ResponseEntity<Map<YearMonth, List<OrderReceivedDto>>> getOrderItemsDashboardBwDates(HttpServletRequest request, @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate, @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+    public ResponseEntity<OrderItemsPageDto> getOrderItemsDashboardBwDates(HttpServletRequest request, @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate, @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+                                                                                @RequestParam(value = "cursorDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorDate, @RequestParam(value = "cursorId", required = false) Long cursorId,
+                                                                                @RequestParam(value = "pageSize", defaultValue = "1000", required = false) int pageSize) {
         String authorizationHeader = request.getHeader(AUTHORIZATION);
         String token = authorizationHeader.substring(7);
         User user = helper.getUser(token);
-        Map<YearMonth, List<OrderReceivedDto>> body = orderService.getOrderedItemsByMonthBwDates(user, startDate, endDate);
+        OrderItemsPageDto body = orderService.getOrderedItemsByMonthBwDates(user, startDate, endDate, cursorDate, cursorId, pageSize);
         return new ResponseEntity<>(body, HttpStatus.OK);
     }
+
+    @ApiOperation(value = "Every order item of the owner as a csv file, streamed row by row")
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+            dashboardService.writeOrderItemsCsv(user, writer);
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+        headers.setContentDispositionFormData("attachment", "rental-history.csv");
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Regenerates the owner monthly stats rollup from the order items")
+    @PostMapping("/rebuild-stats")
+    public ResponseEntity<ApiResponse> rebuildOwnerStats() {
+        int rows = dashboardService.rebuildOwnerStats();
+        return new ResponseEntity<>(new ApiResponse(true, "Owner stats rebuilt with " + rows + " rows"), HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Hit, miss and eviction counters of the dashboard cache")
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Long>> cacheStats() {
+        return new ResponseEntity<>(dashboardService.cacheStats(), HttpStatus.OK);
+    }
 }
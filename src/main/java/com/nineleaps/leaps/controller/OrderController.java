@@ -1,15 +1,17 @@
 package com.nineleaps.leaps.controller;
 
-import com.itextpdf.text.DocumentException;
 import com.nineleaps.leaps.common.ApiResponse;
 import com.nineleaps.leaps.dto.orders.OrderDto;
 import com.nineleaps.leaps.dto.orders.OrderItemDto;
 import com.nineleaps.leaps.dto.product.ProductDto;
 import com.nineleaps.leaps.exceptions.AuthenticationFailException;
+import com.nineleaps.leaps.exceptions.CustomException;
 import com.nineleaps.leaps.exceptions.OrderNotFoundException;
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.model.orders.Order;
 import com.nineleaps.leaps.model.orders.OrderItem;
+import com.nineleaps.leaps.service.InvoiceExportServiceInterface;
+import com.nineleaps.leaps.service.InvoiceServiceInterface;
 import com.nineleaps.leaps.service.OrderServiceInterface;
 import com.nineleaps.leaps.utils.Helper;
 import io.swagger.annotations.Api;
@@ -17,14 +19,19 @@ import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 import static com.nineleaps.leaps.config.MessageStrings.ORDER_ITEM_UNAUTHORIZED_ACCESS;
@@ -38,6 +45,8 @@ import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 @SuppressWarnings("deprecation")
 public class OrderController {
     private final OrderServiceInterface orderService;
+    private final InvoiceServiceInterface invoiceService;
+    private final InvoiceExportServiceInterface invoiceExportService;
     private final Helper helper;
 
 
@@ -116,7 +125,7 @@ public class OrderController {
     }
 
     @GetMapping("/generateInvoice/{orderId}")
-    public ResponseEntity<byte[]> generateInvoice(@PathVariable Long orderId, HttpServletRequest request) {
+    public ResponseEntity<byte[]> generateInvoice(@PathVariable Long orderId, HttpServletRequest request, WebRequest webRequest) {
         try {
             String authorizationHeader = request.getHeader("Authorization");
             String token = authorizationHeader.substring(7);
@@ -128,20 +137,43 @@ public class OrderController {
                 throw new OrderNotFoundException("No order items found for the user and order ID");
             }
 
-            List<OrderItem> orderItems = order.getOrderItems(); //From entity relation
+            // the version only moves when something printed on the invoice does, so the client copy can be reused until then
+            String version = invoiceService.invoiceVersion(order);
+            String eTag = "\"" + version + "\"";
+            if (webRequest.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
 
-            byte[] pdfBytes = orderService.generateInvoicePDF(orderItems,user,order);
+            byte[] pdfBytes = invoiceService.getInvoice(order, user, version);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDispositionFormData("attachment", "invoice.pdf");
+            headers.setETag(eTag);
+            headers.setCacheControl(CacheControl.noCache().cachePrivate());
 
             return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
-        } catch (IOException | DocumentException e) {
+        } catch (IOException e) {
             log.error(String.valueOf(e)); // Handle the exception appropriately
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-}
+    @ApiOperation(value = "Zip of the invoices of all orders placed between the dates and/or containing items of the owner and/or placed by the borrower")
+    @GetMapping("/invoices/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                @RequestParam(value = "ownerId", required = false) Long ownerId,
+                                                                @RequestParam(value = "borrowerId", required = false) Long borrowerId) {
+        if (from == null && to == null && ownerId == null && borrowerId == null) {
+            throw new CustomException("Give a date range, an owner or a borrower to export invoices for");
+        }
+        StreamingResponseBody body = outputStream -> invoiceExportService.exportInvoices(from, to, ownerId, borrowerId, outputStream);
 
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "invoices.zip");
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
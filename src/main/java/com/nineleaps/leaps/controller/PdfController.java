@@ -1,24 +1,27 @@
 package com.nineleaps.leaps.controller;
 
-import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
-import com.itextpdf.text.pdf.PdfWriter;
+import com.nineleaps.leaps.dto.report.ReportJobDto;
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.service.PdfServiceInterface;
+import com.nineleaps.leaps.service.ReportJobServiceInterface;
 import com.nineleaps.leaps.utils.Helper;
+import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
@@ -26,42 +29,69 @@ import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 @RestController
 @RequestMapping("/api/v1/pdf")
 @AllArgsConstructor
+@Slf4j
 public class PdfController {
 
     private final PdfServiceInterface pdfService;
+    private final ReportJobServiceInterface reportJobService;
     private final Helper helper;
 
     @GetMapping("/export") //exportPdf
-    public ResponseEntity<InputStreamResource> getPdf(HttpServletRequest request) throws IOException, DocumentException {
+    public ResponseEntity<StreamingResponseBody> getPdf(HttpServletRequest request) {
         String authorizationHeader = request.getHeader(AUTHORIZATION);
         String token = authorizationHeader.substring(7);
         User user = helper.getUser(token);
 
-        Document document = pdfService.getPdf(user);
+        // written straight into the response as a chunked body, nothing is buffered beyond the writer's own buffer
+        StreamingResponseBody body = outputStream -> {
+            try {
+                pdfService.writeReport(user, outputStream);
+            } catch (DocumentException e) {
+                log.error("Report export failed for user {}", user.getId(), e);
+                throw new IOException(e);
+            }
+        };
 
-        // Convert the Document into a byte array
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PdfWriter.getInstance(document, baos);
-
-        // Open the document
-        document.open();
+        // Set the Content-Disposition header to force download the PDF
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "report.pdf");
 
-        // Add content to the document
-        pdfService.addContent(document, user);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
 
-        // Close the document
-        document.close();
+    @ApiOperation(value = "Queues a report for the owner, an identical report already queued or running is returned instead")
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobDto> submitReportJob(HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        ReportJobDto body = reportJobService.submitOwnerReport(user);
+        return new ResponseEntity<>(body, HttpStatus.ACCEPTED);
+    }
 
-        byte[] pdfBytes = baos.toByteArray();
+    @ApiOperation(value = "Status of a report job")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReportJobDto> getReportJob(@PathVariable String jobId, HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        ReportJobDto body = reportJobService.getJob(jobId, user);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
 
-        // Create the InputStreamResource from the byte array
-        InputStreamResource inputStreamResource = new InputStreamResource(new ByteArrayInputStream(pdfBytes));
+    @ApiOperation(value = "Downloads the report of a finished job")
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadReport(@PathVariable String jobId, HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+        String token = authorizationHeader.substring(7);
+        User user = helper.getUser(token);
+        Resource body = reportJobService.getReportFile(jobId, user);
 
-        // Set the Content-Disposition header to force download the PDF
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", "report.pdf");
 
-        return new ResponseEntity<>(inputStreamResource, headers, HttpStatus.OK);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 }
@@ -1,5 +1,6 @@
 package com.nineleaps.leaps.controller;
 
+import com.nineleaps.leaps.dto.StoredFileDto;
 import com.nineleaps.leaps.dto.UrlResponse;
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.service.StorageServiceInterface;
@@ -9,16 +10,17 @@ import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.ArrayList;
-import java.util.List;
 
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 
@@ -37,13 +39,8 @@ public class StorageController {
     @PostMapping("/upload")
     public UrlResponse uploadFile(@RequestParam(value = "file") MultipartFile[] files) {
         UrlResponse urlResponse = new UrlResponse();
-        List<String> urls = new ArrayList<>();
         try {
-            for (MultipartFile file : files) {
-                String url = storageServiceInterface.uploadFile(file);
-                urls.add(url);
-            }
-            urlResponse.setUrls(urls);
+            urlResponse.setUrls(storageServiceInterface.uploadFiles(files));
         } catch (Exception e) {
             log.error("Network Error in fetching Amazon S3");
         }
@@ -64,26 +61,59 @@ public class StorageController {
     }
 
 
-    // to download the image of the product from s3
+    // to download the image of the product from s3, a single byte range when one is asked for and If-Range still matches
     @ApiOperation(value = "to download the image of the product from s3")
     @GetMapping("/download/{fileName}")
-    public ResponseEntity<ByteArrayResource> downloadFile(@PathVariable String fileName) {
-        byte[] data = storageServiceInterface.downloadFile(fileName);
-        ByteArrayResource resource = new ByteArrayResource(data);
-        return ResponseEntity
-                .ok()
-                .contentLength(data.length)
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable String fileName, HttpServletRequest request, WebRequest webRequest) {
+        StoredFileDto storedFile = storageServiceInterface.getFileMetadata(fileName);
+        String eTag = "\"" + storedFile.getETag() + "\"";
+        if (webRequest.checkNotModified(eTag, storedFile.getLastModified())) {
+            return null;
+        }
+        HttpRange range = storageServiceInterface.requestedRange(storedFile, request);
+        if (range != null && !satisfiable(range, storedFile.getContentLength())) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + storedFile.getContentLength())
+                    .build();
+        }
+        long start = 0;
+        long end = storedFile.getContentLength() - 1;
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (range != null) {
+            start = range.getRangeStart(storedFile.getContentLength());
+            end = range.getRangeEnd(storedFile.getContentLength());
+            builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + storedFile.getContentLength());
+        }
+        long first = start;
+        long last = end;
+        StreamingResponseBody body = outputStream -> storageServiceInterface.downloadFile(fileName, first, last, outputStream);
+        return builder
+                .contentLength(end - start + 1)
+                .eTag(eTag)
+                .lastModified(storedFile.getLastModified())
+                .cacheControl(storageServiceInterface.cacheControl(storedFile))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                 .header("Content-type", "application/octet-stream")
                 .header("Content-disposition", "attachment; filename=\"" + fileName + "\"")
-                .body(resource);
+                .body(body);
+    }
+
+    private static boolean satisfiable(HttpRange range, long length) {
+        try {
+            range.getRangeStart(length);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 
-    // to view the uploaded image
+    // to view the uploaded image, or its thumb or medium variant
     @ApiOperation(value = "to view the uploaded image")
     @GetMapping("/view/{fileName}")
-    public void viewFile(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response) {
+    public void viewFile(@PathVariable String fileName, @RequestParam(value = "size", required = false) String size, HttpServletRequest request, HttpServletResponse response) {
 
-                storageServiceInterface.viewFile(fileName, response);
+                storageServiceInterface.viewFile(fileName, size, request, response);
 
     }
 
@@ -0,0 +1,20 @@
+package com.nineleaps.leaps.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//what a client needs to validate its copy of a stored file; immutable files never change under their key
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFileDto {
+    private String fileName;
+    private String contentType;
+    private long contentLength;
+    private String eTag;
+    private long lastModified;
+    private boolean immutable;
+}
@@ -0,0 +1,25 @@
+package com.nineleaps.leaps.dto.dashboard;
+
+import com.nineleaps.leaps.dto.orders.OrderItemsData;
+import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+//every dashboard view of an owner, computed together from one pass over the owner's order items
+@Getter
+@Setter
+@NoArgsConstructor
+public class DashboardSummaryDto {
+    private Map<String, Object> ownerView;
+    private Map<YearMonth, Map<String, Object>> analytics;
+    private Map<Year, Map<YearMonth, Map<String, Object>>> analyticsYearly;
+    private Map<YearMonth, List<OrderReceivedDto>> monthlyOrderItems;
+    private Map<YearMonth, Map<String, OrderItemsData>> subcategoriesAnalytics;
+    private Map<YearMonth, Map<String, OrderItemsData>> categoriesAnalytics;
+}
@@ -0,0 +1,20 @@
+package com.nineleaps.leaps.dto.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+//totals of one day, week, month or year of an earnings series
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EarningsPointDto {
+    private LocalDate periodStart;
+    private long orderItems;
+    private long quantity;
+    private double earnings;
+}
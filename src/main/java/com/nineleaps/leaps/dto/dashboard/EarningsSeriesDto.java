@@ -0,0 +1,24 @@
+package com.nineleaps.leaps.dto.dashboard;
+
+import com.nineleaps.leaps.enums.TimeResolution;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+//owner's earnings between two days, in total and per period of the requested resolution
+@Getter
+@Setter
+@NoArgsConstructor
+public class EarningsSeriesDto {
+    private LocalDate from;
+    private LocalDate to;
+    private TimeResolution resolution;
+    private long orderItems;
+    private long quantity;
+    private double earnings;
+    private List<EarningsPointDto> points = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package com.nineleaps.leaps.dto.dashboard;
+
+import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//one page of the owner's order items between two dates, grouped by month of rental start. while hasMore is set the
+//next page is asked for with nextCursorDate and nextCursorId
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderItemsPageDto {
+    private Map<YearMonth, List<OrderReceivedDto>> orderItems = new LinkedHashMap<>();
+    private boolean hasMore;
+    private LocalDateTime nextCursorDate;
+    private Long nextCursorId;
+}
@@ -0,0 +1,12 @@
+package com.nineleaps.leaps.dto.dashboard;
+
+//projection of one product's order items summed up, see OrderItemRepository.findTopProducts
+public interface ProductRentalTotalsView {
+    Long getProductId();
+
+    Long getOrderItems();
+
+    Long getQuantity();
+
+    Double getEarnings();
+}
@@ -0,0 +1,19 @@
+package com.nineleaps.leaps.dto.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//one entry of the owner's best performers, ranked by quantity rented out and then by earnings
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopProductDto {
+    private Long productId;
+    private String name;
+    private long orderItems;
+    private long quantity;
+    private double earnings;
+}
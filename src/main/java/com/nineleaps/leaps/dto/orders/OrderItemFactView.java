@@ -0,0 +1,20 @@
+package com.nineleaps.leaps.dto.orders;
+
+import java.time.LocalDateTime;
+
+//projection with just the numbers the analytics fact store keeps per order item
+public interface OrderItemFactView {
+    Long getId();
+
+    Long getOwnerId();
+
+    Long getProductId();
+
+    LocalDateTime getRentalStartDate();
+
+    LocalDateTime getRentalEndDate();
+
+    int getQuantity();
+
+    double getPrice();
+}
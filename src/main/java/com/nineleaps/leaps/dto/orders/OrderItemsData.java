@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
@@ -15,4 +16,12 @@ public class OrderItemsData {
     public void incrementTotalOrders(@NotNull int quantity) {
         totalOrders = totalOrders + quantity;
     }
+
+    public void addOrderItem(OrderReceivedDto orderItem, int quantity) {
+        if (orderItems == null) {
+            orderItems = new ArrayList<>();
+        }
+        orderItems.add(orderItem);
+        incrementTotalOrders(quantity);
+    }
 }
@@ -12,6 +12,7 @@ import static com.nineleaps.leaps.LeapsApplication.NGROK;
 @Getter
 @Setter
 public class OrderReceivedDto {
+    private Long orderItemId;
     private String name;
     private int quantity;
     private LocalDateTime rentalStartDate;
@@ -25,6 +26,7 @@ public class OrderReceivedDto {
     private String borrowerPhoneNumber;
 
     public OrderReceivedDto(OrderItem orderItem) {
+        this.orderItemId = orderItem.getId();
         this.name = orderItem.getProduct().getName();
         this.quantity = orderItem.getQuantity();
         this.rentalStartDate = orderItem.getRentalStartDate();
@@ -38,4 +40,19 @@ public class OrderReceivedDto {
         this.borrowerEmail = orderItem.getOrder().getUser().getEmail();
         this.borrowerPhoneNumber = orderItem.getOrder().getUser().getPhoneNumber();
     }
+
+    public OrderReceivedDto(OrderReceivedDto other) {
+        this.orderItemId = other.orderItemId;
+        this.name = other.name;
+        this.quantity = other.quantity;
+        this.rentalStartDate = other.rentalStartDate;
+        this.rentalEndDate = other.rentalEndDate;
+        this.rentalCost = other.rentalCost;
+        this.imageUrl = other.imageUrl;
+        this.productId = other.productId;
+        this.borrowerId = other.borrowerId;
+        this.borrowerName = other.borrowerName;
+        this.borrowerEmail = other.borrowerEmail;
+        this.borrowerPhoneNumber = other.borrowerPhoneNumber;
+    }
 }
\ No newline at end of file
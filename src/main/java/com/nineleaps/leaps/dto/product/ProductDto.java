@@ -23,6 +23,9 @@ public class ProductDto {
     private String brand;
     private @NotNull String name;
     private @NotNull List<String> imageUrl;
+    // same images, scaled down for lists and detail screens
+    private List<String> thumbnailUrls;
+    private List<String> mediumUrls;
     private @NotNull double price;
     private @NotNull String description;
     private @NotNull int totalQuantity;
@@ -40,6 +43,8 @@ public class ProductDto {
         this.setId(product.getId());
         this.setName(product.getName());
         this.setImageUrl(product.getImageURL().stream().map(productUrl -> NGROK + productUrl.getUrl()).collect(Collectors.toList()));
+        this.setThumbnailUrls(imageUrl.stream().map(url -> url + "?size=thumb").collect(Collectors.toList()));
+        this.setMediumUrls(imageUrl.stream().map(url -> url + "?size=medium").collect(Collectors.toList()));
         this.setDescription(product.getDescription());
         this.setPrice(product.getPrice());
         this.setTotalQuantity(product.getQuantity());
@@ -0,0 +1,8 @@
+package com.nineleaps.leaps.dto.product;
+
+//a product id with one category or subcategory name of that product
+public interface ProductLabelView {
+    Long getProductId();
+
+    String getName();
+}
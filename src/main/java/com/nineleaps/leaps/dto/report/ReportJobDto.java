@@ -0,0 +1,22 @@
+package com.nineleaps.leaps.dto.report;
+
+import com.nineleaps.leaps.enums.ReportJobStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//state of a report job as the owner polls it, downloadUrl is set once the report is done
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReportJobDto {
+    private String jobId;
+    private ReportJobStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String downloadUrl;
+    private String error;
+}
@@ -0,0 +1,32 @@
+package com.nineleaps.leaps.enums;
+
+import com.nineleaps.leaps.exceptions.CustomException;
+
+//renditions of an uploaded image. a variant is stored next to the original under the original key with the size before the extension
+public enum ImageSize {
+    THUMB,
+    MEDIUM,
+    ORIGINAL;
+
+    public String keyFor(String key) {
+        if (this == ORIGINAL) {
+            return key;
+        }
+        String suffix = "__" + name().toLowerCase();
+        int dot = key.lastIndexOf('.');
+        return dot < 0 ? key + suffix : key.substring(0, dot) + suffix + key.substring(dot);
+    }
+
+    //the size query parameter of the view endpoint, the original when it is left out
+    public static ImageSize fromParam(String size) {
+        if (size == null || size.isBlank()) {
+            return ORIGINAL;
+        }
+        for (ImageSize imageSize : values()) {
+            if (imageSize.name().equalsIgnoreCase(size)) {
+                return imageSize;
+            }
+        }
+        throw new CustomException("Unknown image size " + size);
+    }
+}
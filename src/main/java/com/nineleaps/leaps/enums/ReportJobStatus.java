@@ -0,0 +1,11 @@
+package com.nineleaps.leaps.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,39 @@
+package com.nineleaps.leaps.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+//bucket sizes of the earnings time series, weeks start on monday
+public enum TimeResolution {
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR;
+
+    public LocalDate periodStart(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case YEAR:
+                return date.withDayOfYear(1);
+            default:
+                return date;
+        }
+    }
+
+    public LocalDate periodEnd(LocalDate periodStart) {
+        switch (this) {
+            case WEEK:
+                return periodStart.plusDays(6);
+            case MONTH:
+                return periodStart.plusMonths(1).minusDays(1);
+            case YEAR:
+                return periodStart.plusYears(1).minusDays(1);
+            default:
+                return periodStart;
+        }
+    }
+}
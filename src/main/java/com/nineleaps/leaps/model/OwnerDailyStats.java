@@ -0,0 +1,30 @@
+package com.nineleaps.leaps.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+//rollup of an owner's order items per day of rental start, kept in step with order_items like owner_monthly_stats
+@Entity
+@Table(name = "owner_daily_stats", uniqueConstraints = @UniqueConstraint(name = "uk_owner_daily_stats_owner_day", columnNames = {"owner_id", "stat_day"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class OwnerDailyStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate statDay;
+    @Column(name = "order_items")
+    private long orderItems;
+    @Column(name = "quantity")
+    private long quantity;
+    @Column(name = "earnings")
+    private double earnings;
+}
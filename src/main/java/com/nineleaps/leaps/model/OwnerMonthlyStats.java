@@ -0,0 +1,31 @@
+package com.nineleaps.leaps.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+//rollup of an owner's order items per month of rental start, kept in step with order_items
+@Entity
+@Table(name = "owner_monthly_stats", uniqueConstraints = @UniqueConstraint(name = "uk_owner_monthly_stats_owner_month", columnNames = {"owner_id", "stat_year", "stat_month"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class OwnerMonthlyStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+    @Column(name = "stat_year")
+    private int statYear;
+    @Column(name = "stat_month")
+    private int statMonth;
+    @Column(name = "order_items")
+    private long orderItems;
+    @Column(name = "quantity")
+    private long quantity;
+    @Column(name = "earnings")
+    private double earnings;
+}
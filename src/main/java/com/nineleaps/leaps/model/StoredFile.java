@@ -0,0 +1,23 @@
+package com.nineleaps.leaps.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+//a content addressed upload and when its key was last handed out. an upload that matches stored content gets the
+//existing key before any product or profile points at it, so a key issued recently is never deleted
+@Entity
+@Table(name = "stored_file", indexes = @Index(name = "idx_stored_file_issued_at", columnList = "issued_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class StoredFile {
+    @Id
+    @Column(name = "storage_key", length = 100)
+    private String storageKey;
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+}
@@ -5,6 +5,7 @@ import com.nineleaps.leaps.dto.user.ProfileUpdateDto;
 import com.nineleaps.leaps.enums.Role;
 import com.nineleaps.leaps.model.orders.Order;
 import com.nineleaps.leaps.model.product.Product;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -14,7 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_profile_image_key", columnList = "profile_image_key"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -35,6 +36,11 @@ public class User {
     @Column(name = "role")
     private Role role;
     private String profileImageUrl;
+    // the storage key at the end of the profile image url, compared by equality when a file is deleted
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    @Column(name = "profile_image_key")
+    private String profileImageKey;
     @JsonIgnore
     private String deviceToken;
 
@@ -67,7 +73,12 @@ public class User {
         this.phoneNumber = profileUpdateDto.getPhoneNumber();
         this.password = oldUser.getPassword();
         this.role = oldUser.getRole();
-        this.profileImageUrl = oldUser.getProfileImageUrl();
+        this.setProfileImageUrl(oldUser.getProfileImageUrl());
         this.deviceToken = oldUser.getDeviceToken();
     }
+
+    public void setProfileImageUrl(String profileImageUrl) {
+        this.profileImageUrl = profileImageUrl;
+        this.profileImageKey = profileImageUrl == null ? null : profileImageUrl.substring(profileImageUrl.lastIndexOf('/') + 1);
+    }
 }
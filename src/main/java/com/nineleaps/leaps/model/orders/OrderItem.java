@@ -11,7 +11,7 @@ import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_owner_rental_start", columnList = "owner_id, rental_start_date"))
 @Getter
 @Setter
 @NoArgsConstructor
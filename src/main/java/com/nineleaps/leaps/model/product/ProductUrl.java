@@ -1,5 +1,6 @@
 package com.nineleaps.leaps.model.product;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -8,7 +9,7 @@ import lombok.Setter;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "product_url")
+@Table(name = "product_url", indexes = @Index(name = "idx_product_url_storage_key", columnList = "storage_key"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -18,9 +19,17 @@ public class ProductUrl {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String url;
+    // the storage key at the end of the url, compared by equality when a file is deleted
+    @Setter(AccessLevel.NONE)
+    @Column(name = "storage_key", length = 255)
+    private String storageKey;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
+    public void setUrl(String url) {
+        this.url = url;
+        this.storageKey = url == null ? null : url.substring(url.lastIndexOf('/') + 1);
+    }
 
 }
@@ -1,16 +1,63 @@
 package com.nineleaps.leaps.repository;
 
+import com.nineleaps.leaps.dto.dashboard.ProductRentalTotalsView;
+import com.nineleaps.leaps.dto.orders.OrderItemFactView;
 import com.nineleaps.leaps.model.orders.OrderItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByRentalEndDateLessThanEqual(LocalDateTime currentDate);
     Page<OrderItem> findByOwnerId(Pageable pageable, Long ownerId);
+
+    boolean existsByOwnerIdNotNull();
+
+    //shared next-key locks on every order item and the gaps between them, an order placed meanwhile waits for the
+    //transaction to end. one placed before is waited for instead, together with its owner_monthly_stats upsert
+    @Query(value = "select count(*) from order_items lock in share mode", nativeQuery = true)
+    long lockAllForShare();
+
+    //read through a server side cursor (useCursorFetch=true on the datasource url), must be consumed inside a transaction.
+    //order, borrower and product come in the same row so building an OrderReceivedDto issues no further selects
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select orderItem from OrderItem orderItem join fetch orderItem.order ord join fetch ord.user " +
+            "join fetch orderItem.product where orderItem.ownerId = :ownerId")
+    Stream<OrderItem> streamByOwnerId(@Param("ownerId") Long ownerId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select orderItem.id as id, orderItem.ownerId as ownerId, orderItem.product.id as productId, " +
+            "orderItem.rentalStartDate as rentalStartDate, orderItem.rentalEndDate as rentalEndDate, " +
+            "orderItem.quantity as quantity, orderItem.price as price " +
+            "from OrderItem orderItem where orderItem.ownerId is not null order by orderItem.id")
+    Stream<OrderItemFactView> streamAllFacts();
+
+    //keyset page over (rental_start_date, id), served by idx_order_items_owner_rental_start
+    @Query("select orderItem from OrderItem orderItem join fetch orderItem.order ord join fetch ord.user " +
+            "join fetch orderItem.product where orderItem.ownerId = :ownerId " +
+            "and orderItem.rentalStartDate > :startDate and orderItem.rentalStartDate < :endDate " +
+            "and (orderItem.rentalStartDate > :cursorDate or (orderItem.rentalStartDate = :cursorDate and orderItem.id > :cursorId)) " +
+            "order by orderItem.rentalStartDate, orderItem.id")
+    List<OrderItem> findOwnerItemsBetween(@Param("ownerId") Long ownerId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                                          @Param("cursorDate") LocalDateTime cursorDate, @Param("cursorId") Long cursorId, Pageable pageable);
+
+    //per product totals of an owner, best first; a null bound leaves that side of the window open
+    @Query(value = "select product_id as productId, count(*) as orderItems, sum(quantity) as quantity, " +
+            "sum(price * quantity * timestampdiff(day, rental_start_date, rental_end_date)) as earnings " +
+            "from order_items where owner_id = :ownerId " +
+            "and (:from is null or rental_start_date >= :from) and (:to is null or rental_start_date < :to) " +
+            "group by product_id order by sum(quantity) desc, earnings desc, product_id limit :n", nativeQuery = true)
+    List<ProductRentalTotalsView> findTopProducts(@Param("ownerId") Long ownerId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("n") int n);
 }
@@ -2,9 +2,13 @@ package com.nineleaps.leaps.repository;
 
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.model.orders.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +17,13 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Optional<Order> findByIdAndUserId(Long orderId, Long userId);
 
     List<Order> findByUserOrderByCreateDateDesc(User user);
+
+    //next page of order ids after cursorId; every null filter is left out
+    @Query("select o.id from Order o where o.id > :cursorId " +
+            "and (:from is null or o.createDate >= :from) and (:to is null or o.createDate < :to) " +
+            "and (:borrowerId is null or o.user.id = :borrowerId) " +
+            "and (:ownerId is null or exists (select orderItem.id from OrderItem orderItem where orderItem.order = o and orderItem.ownerId = :ownerId)) " +
+            "order by o.id")
+    List<Long> findOrderIdsForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("ownerId") Long ownerId,
+                                     @Param("borrowerId") Long borrowerId, @Param("cursorId") Long cursorId, Pageable pageable);
 }
@@ -0,0 +1,37 @@
+package com.nineleaps.leaps.repository;
+
+import com.nineleaps.leaps.model.OwnerDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OwnerDailyStatsRepository extends JpaRepository<OwnerDailyStats, Long> {
+    //range scan on uk_owner_daily_stats_owner_day, both days inclusive
+    List<OwnerDailyStats> findByOwnerIdAndStatDayBetween(Long ownerId, LocalDate from, LocalDate to);
+
+    //upsert so concurrent orders for the same owner and day add up instead of racing on insert
+    @Modifying
+    @Query(value = "insert into owner_daily_stats (owner_id, stat_day, order_items, quantity, earnings) " +
+            "values (:ownerId, :statDay, 1, :quantity, :earnings) " +
+            "on duplicate key update order_items = order_items + 1, quantity = quantity + values(quantity), earnings = earnings + values(earnings)", nativeQuery = true)
+    void addOrderItem(@Param("ownerId") Long ownerId, @Param("statDay") LocalDate statDay, @Param("quantity") int quantity, @Param("earnings") double earnings);
+
+    @Modifying
+    @Query(value = "delete from owner_daily_stats", nativeQuery = true)
+    void deleteAllStats();
+
+    //timestampdiff(day, ...) counts whole days, same as ChronoUnit.DAYS.between
+    @Modifying
+    @Query(value = "insert into owner_daily_stats (owner_id, stat_day, order_items, quantity, earnings) " +
+            "select owner_id, date(rental_start_date), count(*), sum(quantity), " +
+            "sum(price * quantity * timestampdiff(day, rental_start_date, rental_end_date)) " +
+            "from order_items where owner_id is not null " +
+            "group by owner_id, date(rental_start_date)", nativeQuery = true)
+    int insertStatsFromOrderItems();
+}
@@ -0,0 +1,43 @@
+package com.nineleaps.leaps.repository;
+
+import com.nineleaps.leaps.model.OwnerMonthlyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OwnerMonthlyStatsRepository extends JpaRepository<OwnerMonthlyStats, Long> {
+    List<OwnerMonthlyStats> findByOwnerId(Long ownerId);
+
+    //0 when the owner has no rows yet
+    @Query("select coalesce(sum(s.orderItems), 0) from OwnerMonthlyStats s where s.ownerId = :ownerId")
+    long sumOrderItemsByOwnerId(@Param("ownerId") Long ownerId);
+
+    //months given as year * 12 + month, both inclusive
+    @Query("select s from OwnerMonthlyStats s where s.ownerId = :ownerId and s.statYear * 12 + s.statMonth between :firstMonth and :lastMonth")
+    List<OwnerMonthlyStats> findByOwnerIdAndMonthBetween(@Param("ownerId") Long ownerId, @Param("firstMonth") int firstMonth, @Param("lastMonth") int lastMonth);
+
+    //upsert so concurrent orders for the same owner and month add up instead of racing on insert
+    @Modifying
+    @Query(value = "insert into owner_monthly_stats (owner_id, stat_year, stat_month, order_items, quantity, earnings) " +
+            "values (:ownerId, :statYear, :statMonth, 1, :quantity, :earnings) " +
+            "on duplicate key update order_items = order_items + 1, quantity = quantity + values(quantity), earnings = earnings + values(earnings)", nativeQuery = true)
+    void addOrderItem(@Param("ownerId") Long ownerId, @Param("statYear") int statYear, @Param("statMonth") int statMonth, @Param("quantity") int quantity, @Param("earnings") double earnings);
+
+    @Modifying
+    @Query(value = "delete from owner_monthly_stats", nativeQuery = true)
+    void deleteAllStats();
+
+    //timestampdiff(day, ...) counts whole days, same as ChronoUnit.DAYS.between
+    @Modifying
+    @Query(value = "insert into owner_monthly_stats (owner_id, stat_year, stat_month, order_items, quantity, earnings) " +
+            "select owner_id, year(rental_start_date), month(rental_start_date), count(*), sum(quantity), " +
+            "sum(price * quantity * timestampdiff(day, rental_start_date, rental_end_date)) " +
+            "from order_items where owner_id is not null " +
+            "group by owner_id, year(rental_start_date), month(rental_start_date)", nativeQuery = true)
+    int insertStatsFromOrderItems();
+}
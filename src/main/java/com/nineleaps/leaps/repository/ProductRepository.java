@@ -1,5 +1,6 @@
 package com.nineleaps.leaps.repository;
 
+import com.nineleaps.leaps.dto.product.ProductLabelView;
 import com.nineleaps.leaps.model.product.Product;
 import com.nineleaps.leaps.model.User;
 import org.springframework.data.domain.Page;
@@ -33,4 +34,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findAllByUser(User user, Sort id);
 
     Page<Product> findAllByUserNot(Pageable pageable, User user);
+
+    //both bags cannot be fetched in one query, load them one after the other into the same persistence context
+    @Query("select distinct product from Product product left join fetch product.categories where product.user.id = :ownerId")
+    List<Product> findByOwnerIdFetchCategories(@Param("ownerId") Long ownerId);
+
+    @Query("select distinct product from Product product left join fetch product.subCategories subCategory " +
+            "left join fetch subCategory.category where product.user.id = :ownerId")
+    List<Product> findByOwnerIdFetchSubCategories(@Param("ownerId") Long ownerId);
+
+    @Query("select product.id as productId, category.categoryName as name from Product product join product.categories category where product.user.id = :ownerId")
+    List<ProductLabelView> findCategoryNamesByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("select product.id as productId, subCategory.subcategoryName as name from Product product join product.subCategories subCategory where product.user.id = :ownerId")
+    List<ProductLabelView> findSubcategoryNamesByOwnerId(@Param("ownerId") Long ownerId);
 }
@@ -0,0 +1,17 @@
+package com.nineleaps.leaps.repository;
+
+import com.nineleaps.leaps.model.product.ProductUrl;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductUrlRepository extends JpaRepository<ProductUrl, Long> {
+    boolean existsByStorageKey(String storageKey);
+
+    //urls saved before the key had its own column
+    @Modifying
+    @Query(value = "update product_url set storage_key = substring_index(url, '/', -1) where storage_key is null and url is not null", nativeQuery = true)
+    int fillMissingStorageKeys();
+}
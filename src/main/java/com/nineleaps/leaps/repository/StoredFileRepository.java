@@ -0,0 +1,34 @@
+package com.nineleaps.leaps.repository;
+
+import com.nineleaps.leaps.model.StoredFile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    //committed on its own, waits while a delete of the same key holds the row
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "insert into stored_file (storage_key, issued_at) values (:storageKey, :issuedAt) " +
+            "on duplicate key update issued_at = values(issued_at)", nativeQuery = true)
+    void recordIssued(@Param("storageKey") String storageKey, @Param("issuedAt") LocalDateTime issuedAt);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StoredFile s where s.storageKey = :storageKey")
+    Optional<StoredFile> lockByStorageKey(@Param("storageKey") String storageKey);
+
+    @Query("select s.storageKey from StoredFile s where s.issuedAt < :cutoff order by s.issuedAt")
+    List<String> findKeysIssuedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+}
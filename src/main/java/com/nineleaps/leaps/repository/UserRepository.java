@@ -3,6 +3,8 @@ package com.nineleaps.leaps.repository;
 import com.nineleaps.leaps.enums.Role;
 import com.nineleaps.leaps.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -14,4 +16,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     User findByPhoneNumber(String phoneNumber);
 
     User findDeviceTokenByEmail(String email);
+
+    boolean existsByProfileImageKey(String profileImageKey);
+
+    //profile images saved before the key had its own column
+    @Modifying
+    @Query(value = "update users set profile_image_key = substring_index(profile_image_url, '/', -1) where profile_image_key is null and profile_image_url is not null", nativeQuery = true)
+    int fillMissingProfileImageKeys();
 }
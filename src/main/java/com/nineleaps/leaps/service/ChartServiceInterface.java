@@ -0,0 +1,10 @@
+package com.nineleaps.leaps.service;
+
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import java.io.IOException;
+
+public interface ChartServiceInterface {
+
+    byte[] barChartPng(String title, String categoryAxisLabel, String valueAxisLabel, DefaultCategoryDataset dataset, int width, int height) throws IOException;
+}
@@ -1,12 +1,32 @@
 package com.nineleaps.leaps.service;
 
+import com.nineleaps.leaps.dto.dashboard.DashboardSummaryDto;
+import com.nineleaps.leaps.dto.dashboard.EarningsSeriesDto;
+import com.nineleaps.leaps.dto.dashboard.TopProductDto;
+import com.nineleaps.leaps.enums.TimeResolution;
 import com.nineleaps.leaps.model.User;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.List;
 import java.util.Map;
 
 public interface DashboardServiceInterface {
 
     Map<String, Object> dashboardOwnerView(User user);
     Map<YearMonth, Map<String, Object>> analytics(User user);
+
+    DashboardSummaryDto summary(User user);
+
+    List<TopProductDto> topProducts(User user, int n, LocalDate from, LocalDate to);
+
+    EarningsSeriesDto earningsSeries(User user, LocalDate from, LocalDate to, TimeResolution resolution);
+
+    void writeOrderItemsCsv(User user, Writer writer) throws IOException;
+
+    int rebuildOwnerStats();
+
+    Map<String, Long> cacheStats();
 }
@@ -0,0 +1,12 @@
+package com.nineleaps.leaps.service;
+
+import com.nineleaps.leaps.enums.ImageSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Map;
+import java.util.concurrent.Future;
+
+public interface ImageServiceInterface {
+
+    Future<Map<ImageSize, byte[]>> renderVariants(String fileName, MultipartFile file);
+}
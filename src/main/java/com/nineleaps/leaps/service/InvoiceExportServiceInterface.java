@@ -0,0 +1,10 @@
+package com.nineleaps.leaps.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+public interface InvoiceExportServiceInterface {
+
+    void exportInvoices(LocalDate from, LocalDate to, Long ownerId, Long borrowerId, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.nineleaps.leaps.service;
+
+import com.nineleaps.leaps.model.User;
+import com.nineleaps.leaps.model.orders.Order;
+
+import java.io.IOException;
+
+public interface InvoiceServiceInterface {
+
+    String invoiceVersion(Order order);
+
+    byte[] getInvoice(Order order, User user, String version) throws IOException;
+}
@@ -2,6 +2,7 @@ package com.nineleaps.leaps.service;
 
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
+import com.nineleaps.leaps.dto.dashboard.OrderItemsPageDto;
 import com.nineleaps.leaps.dto.orders.OrderDto;
 import com.nineleaps.leaps.dto.orders.OrderItemDto;
 import com.nineleaps.leaps.dto.orders.OrderItemsData;
@@ -13,6 +14,7 @@ import com.nineleaps.leaps.model.orders.OrderItem;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.Year;
 import java.time.YearMonth;
@@ -40,9 +42,13 @@ public interface OrderServiceInterface {
 
     Map<Year, Map<YearMonth, Map<String, Object>>> onClickDashboardYearWiseData(User user);
 
-    Map<YearMonth, List<OrderReceivedDto>> getOrderedItemsByMonthBwDates(User user, LocalDateTime startDate, LocalDateTime endDate);
+    OrderItemsPageDto getOrderedItemsByMonthBwDates(User user, LocalDateTime startDate, LocalDateTime endDate, LocalDateTime cursorDate, Long cursorId, int pageSize);
 
     byte[] generateInvoicePDF(List<OrderItem> orderItems, User user, Order order) throws IOException, DocumentException;
 
+    void writeInvoicePdf(Long orderId, User user, OutputStream outputStream) throws DocumentException;
+
+    void writeInvoicePdf(Long orderId, OutputStream outputStream) throws DocumentException;
+
     List<OrderItemDto> getOrdersItemByStatus(String shippingStatus, User user);
 }
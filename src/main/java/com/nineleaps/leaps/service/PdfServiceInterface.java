@@ -6,6 +6,7 @@ import com.nineleaps.leaps.model.User;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 
 public interface PdfServiceInterface {
 
@@ -13,5 +14,7 @@ public interface PdfServiceInterface {
 
     void addContent(Document document, User user) throws DocumentException, IOException;
 
+    void writeReport(User user, OutputStream outputStream) throws DocumentException, IOException;
+
 
 }
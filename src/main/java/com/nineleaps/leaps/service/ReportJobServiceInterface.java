@@ -0,0 +1,14 @@
+package com.nineleaps.leaps.service;
+
+import com.nineleaps.leaps.dto.report.ReportJobDto;
+import com.nineleaps.leaps.model.User;
+import org.springframework.core.io.Resource;
+
+public interface ReportJobServiceInterface {
+
+    ReportJobDto submitOwnerReport(User user);
+
+    ReportJobDto getJob(String jobId, User user);
+
+    Resource getReportFile(String jobId, User user);
+}
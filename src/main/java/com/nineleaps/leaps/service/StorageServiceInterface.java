@@ -1,16 +1,33 @@
 package com.nineleaps.leaps.service;
 
+import com.nineleaps.leaps.dto.StoredFileDto;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpRange;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 public interface StorageServiceInterface {
     String uploadFile(MultipartFile file);
 
-    byte[] downloadFile(String fileName);
+    List<String> uploadFiles(MultipartFile[] files);
+
+    void downloadFile(String fileName, long start, long end, OutputStream outputStream) throws IOException;
+
+    StoredFileDto getFileMetadata(String fileName);
+
+    CacheControl cacheControl(StoredFileDto storedFile);
+
+    HttpRange requestedRange(StoredFileDto storedFile, HttpServletRequest request);
 
     String deleteFile(String fileName);
 
-    void viewFile(String fileName, HttpServletResponse response);
+    void viewFile(String fileName, HttpServletRequest request, HttpServletResponse response);
+
+    void viewFile(String fileName, String size, HttpServletRequest request, HttpServletResponse response);
 
 }
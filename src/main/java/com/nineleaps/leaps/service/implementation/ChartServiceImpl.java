@@ -0,0 +1,101 @@
+package com.nineleaps.leaps.service.implementation;
+
+import com.nineleaps.leaps.cache.LruCache;
+import com.nineleaps.leaps.service.ChartServiceInterface;
+import lombok.extern.slf4j.Slf4j;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.StandardChartTheme;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+//renders report charts to png. the theme and its fonts are built once, every thread reuses its own image and
+//output buffer, and charts already drawn for the same data are served from memory
+@Service
+@Slf4j
+public class ChartServiceImpl implements ChartServiceInterface {
+
+    private static final StandardChartTheme THEME = (StandardChartTheme) StandardChartTheme.createJFreeTheme();
+
+    private final LruCache<String, byte[]> renderedCharts;
+    private final ThreadLocal<BufferedImage> images = new ThreadLocal<>();
+    private final ThreadLocal<ByteArrayOutputStream> pngBuffers = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(64 * 1024));
+
+    public ChartServiceImpl(@Value("${leaps.charts.cache.max-entries:500}") int maxEntries) {
+        this.renderedCharts = new LruCache<>(maxEntries, Duration.ZERO);
+    }
+
+    @Override
+    public byte[] barChartPng(String title, String categoryAxisLabel, String valueAxisLabel, DefaultCategoryDataset dataset, int width, int height) throws IOException {
+        String key = chartKey(title, categoryAxisLabel, valueAxisLabel, dataset, width, height);
+        byte[] png = renderedCharts.get(key);
+        if (png == null) {
+            JFreeChart chart = ChartFactory.createBarChart(title, categoryAxisLabel, valueAxisLabel, dataset,
+                    PlotOrientation.VERTICAL, true, false, false);
+            THEME.apply(chart);
+            png = render(chart, width, height);
+            renderedCharts.put(key, png);
+        }
+        return png;
+    }
+
+    // pays for awt, font and png encoder initialization before the first real export does
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        dataset.addValue(1, "Warm up", "Jan");
+        try {
+            JFreeChart chart = ChartFactory.createBarChart("Warm up", "Month", "Value", dataset, PlotOrientation.VERTICAL, true, false, false);
+            THEME.apply(chart);
+            render(chart, 100, 60);
+            log.info("Chart rendering warmed up in {} ms", System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Chart rendering warm up failed", e);
+        }
+    }
+
+    private byte[] render(JFreeChart chart, int width, int height) throws IOException {
+        BufferedImage image = images.get();
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            images.set(image);
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            chart.draw(graphics, new Rectangle2D.Double(0, 0, width, height));
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream pngBuffer = pngBuffers.get();
+        pngBuffer.reset();
+        ChartUtilities.writeBufferedImageAsPNG(pngBuffer, image);
+        return pngBuffer.toByteArray();
+    }
+
+    // identical labels, size and data always give the same picture
+    private static String chartKey(String title, String categoryAxisLabel, String valueAxisLabel, DefaultCategoryDataset dataset, int width, int height) {
+        StringBuilder content = new StringBuilder();
+        content.append(title).append('|').append(categoryAxisLabel).append('|').append(valueAxisLabel).append('|').append(width).append('x').append(height);
+        for (int row = 0; row < dataset.getRowCount(); row++) {
+            for (int column = 0; column < dataset.getColumnCount(); column++) {
+                content.append('\n').append(dataset.getRowKey(row)).append('|').append(dataset.getColumnKey(column)).append('|').append(dataset.getValue(row, column));
+            }
+        }
+        return DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
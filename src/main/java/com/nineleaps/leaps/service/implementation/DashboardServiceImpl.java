@@ -1,79 +1,315 @@
 package com.nineleaps.leaps.service.implementation;
 
+import com.nineleaps.leaps.analytics.DashboardAnalyticsEngine;
+import com.nineleaps.leaps.analytics.EarningsSeries;
+import com.nineleaps.leaps.analytics.OrderItemFactStore;
+import com.nineleaps.leaps.cache.DashboardCache;
+import com.nineleaps.leaps.dto.dashboard.DashboardSummaryDto;
+import com.nineleaps.leaps.dto.dashboard.EarningsPointDto;
+import com.nineleaps.leaps.dto.dashboard.EarningsSeriesDto;
+import com.nineleaps.leaps.dto.dashboard.ProductRentalTotalsView;
+import com.nineleaps.leaps.dto.dashboard.TopProductDto;
+import com.nineleaps.leaps.dto.product.ProductLabelView;
+import com.nineleaps.leaps.enums.TimeResolution;
+import com.nineleaps.leaps.exceptions.CustomException;
+import com.nineleaps.leaps.model.OwnerDailyStats;
+import com.nineleaps.leaps.model.OwnerMonthlyStats;
 import com.nineleaps.leaps.model.User;
-import com.nineleaps.leaps.model.orders.Order;
-import com.nineleaps.leaps.model.orders.OrderItem;
-import com.nineleaps.leaps.repository.OrderRepository;
+import com.nineleaps.leaps.model.product.Product;
+import com.nineleaps.leaps.repository.OrderItemRepository;
+import com.nineleaps.leaps.repository.OwnerDailyStatsRepository;
+import com.nineleaps.leaps.repository.OwnerMonthlyStatsRepository;
+import com.nineleaps.leaps.repository.ProductRepository;
 import com.nineleaps.leaps.service.DashboardServiceInterface;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import static com.nineleaps.leaps.LeapsApplication.NGROK;
 import static com.nineleaps.leaps.config.MessageStrings.TOTAL_INCOME;
 import static com.nineleaps.leaps.config.MessageStrings.TOTAL_NUMBER;
 
 @Service
 @AllArgsConstructor
 @Transactional
+@Slf4j
 public class DashboardServiceImpl implements DashboardServiceInterface {
 
-    private final OrderRepository orderRepository;
+    private static final int MAX_TOP_PRODUCTS = 100;
+    private static final int CSV_FETCH_SIZE = 500;
+    private static final String CSV_HEADER = "orderItemId,name,quantity,rentalStartDate,rentalEndDate,rentalCost,imageUrl,productId," +
+            "borrowerId,borrowerName,borrowerEmail,borrowerPhoneNumber,categories,subcategories";
+    // scalar columns only, nothing ends up in the persistence context however many rows there are
+    private static final String CSV_QUERY = "select orderItem.id, product.name, orderItem.quantity, orderItem.rentalStartDate, orderItem.rentalEndDate, " +
+            "orderItem.price, orderItem.imageUrl, product.id, borrower.id, borrower.firstName, borrower.lastName, borrower.email, borrower.phoneNumber " +
+            "from OrderItem orderItem join orderItem.product product join orderItem.order ord join ord.user borrower " +
+            "where orderItem.ownerId = :ownerId order by orderItem.id";
+
+    private final OwnerMonthlyStatsRepository ownerMonthlyStatsRepository;
+    private final OwnerDailyStatsRepository ownerDailyStatsRepository;
+    private final DashboardAnalyticsEngine dashboardAnalyticsEngine;
+    private final DashboardCache dashboardCache;
+    private final OrderItemFactStore orderItemFactStore;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
 
     @Override
     public Map<String, Object> dashboardOwnerView(User user) {
-        double totalEarnings = 0;
-        int totalNumberOfItems = 0;
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user)) {
-                    totalNumberOfItems += 1;
-                    totalEarnings += orderItem.getPrice() * orderItem.getQuantity() * (ChronoUnit.DAYS.between(orderItem.getRentalStartDate(), orderItem.getRentalEndDate()));
-                }
+        return dashboardCache.get(user.getId(), "owner-view", () -> computeOwnerView(user));
+    }
+
+    @Override
+    public Map<YearMonth, Map<String, Object>> analytics(User user) {
+        return dashboardCache.get(user.getId(), "analytics", () -> computeAnalytics(user));
+    }
+
+    @Override
+    public DashboardSummaryDto summary(User user) {
+        return dashboardCache.get(user.getId(), "summary", () -> dashboardAnalyticsEngine.summarize(user));
+    }
+
+    @Override
+    public List<TopProductDto> topProducts(User user, int n, LocalDate from, LocalDate to) {
+        int limit = Math.max(1, Math.min(n, MAX_TOP_PRODUCTS));
+        return dashboardCache.get(user.getId(), "top-products", () -> computeTopProducts(user, limit, from, to), limit, from, to);
+    }
+
+    @Override
+    public EarningsSeriesDto earningsSeries(User user, LocalDate from, LocalDate to, TimeResolution resolution) {
+        if (from.isAfter(to)) {
+            throw new CustomException("from must not be after to");
+        }
+        return dashboardCache.get(user.getId(), "earnings-series", () -> computeEarningsSeries(user, from, to, resolution), from, to, resolution);
+    }
+
+    //one line per order item of the owner, read through a forward only cursor so memory stays flat
+    @Override
+    public void writeOrderItemsCsv(User user, Writer writer) throws IOException {
+        Map<Long, String> categories = joinNamesByProduct(productRepository.findCategoryNamesByOwnerId(user.getId()));
+        Map<Long, String> subcategories = joinNamesByProduct(productRepository.findSubcategoryNamesByOwnerId(user.getId()));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        Session session = entityManager.unwrap(Session.class);
+        try (ScrollableResults rows = session.createQuery(CSV_QUERY)
+                .setParameter("ownerId", user.getId())
+                .setFetchSize(CSV_FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                writeCsvRow(writer, rows.get(), categories, subcategories);
             }
         }
-        Map<String, Object> result = new HashMap<>();
-        result.put(TOTAL_NUMBER, totalNumberOfItems);
-        result.put(TOTAL_INCOME, totalEarnings);
-        return result;
+        writer.flush();
     }
 
+    // regenerates owner_monthly_stats and owner_daily_stats from order_items, e.g. after a backfill or a data fix. order
+    // items are locked first so no order can add to the rollups between the delete and the insert and then be counted twice or lost
     @Override
-    public Map<YearMonth, Map<String, Object>> analytics(User user) {
-        Map<YearMonth, Double> totalEarningsByMonth = new HashMap<>();
-        Map<YearMonth, Integer> totalItemsByMonth = new HashMap<>();
+    public int rebuildOwnerStats() {
+        orderItemRepository.lockAllForShare();
+        ownerMonthlyStatsRepository.deleteAllStats();
+        ownerDailyStatsRepository.deleteAllStats();
+        int rows = ownerMonthlyStatsRepository.insertStatsFromOrderItems();
+        int dailyRows = ownerDailyStatsRepository.insertStatsFromOrderItems();
+        log.info("Rebuilt owner_monthly_stats with {} rows and owner_daily_stats with {} rows", rows, dailyRows);
+        dashboardCache.invalidateAll();
+        return rows;
+    }
 
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user)) {
-                    int quantity = orderItem.getQuantity();
-                    double price = orderItem.getPrice();
-                    LocalDateTime rentalStartDate = orderItem.getRentalStartDate();
-                    LocalDateTime rentalEndDate = orderItem.getRentalEndDate();
+    // the rollups only learn of orders placed after they were deployed, fill them once from the order items already there
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOwnerStats() {
+        if ((ownerMonthlyStatsRepository.count() == 0 || ownerDailyStatsRepository.count() == 0) && orderItemRepository.existsByOwnerIdNotNull()) {
+            rebuildOwnerStats();
+        }
+    }
 
-                    long rentalDurationInDays = ChronoUnit.DAYS.between(rentalStartDate, rentalEndDate);
-                    double earnings = price * quantity * rentalDurationInDays;
+    @Override
+    public Map<String, Long> cacheStats() {
+        return dashboardCache.stats();
+    }
 
-                    YearMonth month = YearMonth.from(rentalStartDate);
+    private Map<String, Object> computeOwnerView(User user) {
+        if (orderItemFactStore.isReady()) {
+            OrderItemFactStore.OwnerTotals totals = orderItemFactStore.ownerTotals(user.getId());
+            Map<String, Object> result = new HashMap<>();
+            result.put(TOTAL_NUMBER, totals.getOrderItems());
+            result.put(TOTAL_INCOME, totals.getEarnings());
+            return result;
+        }
+        double totalEarnings = 0;
+        long totalNumberOfItems = 0;
+        for (OwnerMonthlyStats monthlyStats : ownerMonthlyStatsRepository.findByOwnerId(user.getId())) {
+            totalNumberOfItems += monthlyStats.getOrderItems();
+            totalEarnings += monthlyStats.getEarnings();
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put(TOTAL_NUMBER, (int) totalNumberOfItems);
+        result.put(TOTAL_INCOME, totalEarnings);
+        return result;
+    }
 
-                    totalEarningsByMonth.put(month, totalEarningsByMonth.getOrDefault(month, 0.0) + earnings);
-                    totalItemsByMonth.put(month, totalItemsByMonth.getOrDefault(month, 0) + quantity);
+    private Map<YearMonth, Map<String, Object>> computeAnalytics(User user) {
+        Map<YearMonth, Map<String, Object>> result = new HashMap<>();
+        if (orderItemFactStore.isReady()) {
+            OrderItemFactStore.MonthlyTotals totals = orderItemFactStore.monthlyTotals(user.getId());
+            for (int i = 0; i < totals.size(); i++) {
+                if (totals.orderItems(i) == 0) {
+                    continue;
                 }
+                Map<String, Object> monthData = new HashMap<>();
+                monthData.put(TOTAL_NUMBER, totals.quantity(i));
+                monthData.put(TOTAL_INCOME, totals.earnings(i));
+                result.put(totals.month(i), monthData);
             }
+            return result;
         }
-        Map<YearMonth, Map<String, Object>> result = new HashMap<>();
-        for (Map.Entry<YearMonth, Double> monthEntry : totalEarningsByMonth.entrySet()) {
-            YearMonth month = monthEntry.getKey();
+        for (OwnerMonthlyStats monthlyStats : ownerMonthlyStatsRepository.findByOwnerId(user.getId())) {
+            YearMonth month = YearMonth.of(monthlyStats.getStatYear(), monthlyStats.getStatMonth());
             Map<String, Object> monthData = new HashMap<>();
-            monthData.put(TOTAL_NUMBER, totalItemsByMonth.get(month));
-            monthData.put(TOTAL_INCOME, monthEntry.getValue());
+            monthData.put(TOTAL_NUMBER, (int) monthlyStats.getQuantity());
+            monthData.put(TOTAL_INCOME, monthlyStats.getEarnings());
             result.put(month, monthData);
         }
         return result;
     }
+
+    // from and to are inclusive days, either may be left open
+    private List<TopProductDto> computeTopProducts(User user, int n, LocalDate from, LocalDate to) {
+        List<TopProductDto> result = new ArrayList<>();
+        if (orderItemFactStore.isReady()) {
+            long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+            long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+            for (OrderItemFactStore.ProductTotals totals : orderItemFactStore.topProducts(user.getId(), fromDay, toDay, n)) {
+                result.add(new TopProductDto(totals.getProductId(), null, totals.getOrderItems(), totals.getQuantity(), totals.getEarnings()));
+            }
+        } else {
+            LocalDateTime fromTime = from == null ? null : from.atStartOfDay();
+            LocalDateTime toTime = to == null ? null : to.plusDays(1).atStartOfDay();
+            for (ProductRentalTotalsView totals : orderItemRepository.findTopProducts(user.getId(), fromTime, toTime, n)) {
+                result.add(new TopProductDto(totals.getProductId(), null, totals.getOrderItems(), totals.getQuantity(), totals.getEarnings()));
+            }
+        }
+        // names of just the n winners, in one query
+        Map<Long, String> names = productRepository.findAllById(result.stream().map(TopProductDto::getProductId).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(Product::getId, Product::getName));
+        result.forEach(topProduct -> topProduct.setName(names.get(topProduct.getProductId())));
+        return result;
+    }
+
+    private EarningsSeriesDto computeEarningsSeries(User user, LocalDate from, LocalDate to, TimeResolution resolution) {
+        EarningsSeries.Bucket total;
+        List<EarningsSeries.Point> points;
+        if (orderItemFactStore.isReady()) {
+            OrderItemFactStore.EarningsSeriesResult series = orderItemFactStore.earningsSeries(user.getId(), from, to, resolution);
+            total = series.getTotal();
+            points = series.getPoints();
+        } else {
+            // no fact store, fill a throwaway series from the rollups: months wholly inside the range from
+            // owner_monthly_stats, the days of the cut months at either end from owner_daily_stats. day and week points
+            // need every day of the range, which are no more rows than the points themselves
+            EarningsSeries series = new EarningsSeries();
+            LocalDate firstFullMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+            LocalDate afterFullMonths = to.plusDays(1).withDayOfMonth(1);
+            if (resolution == TimeResolution.DAY || resolution == TimeResolution.WEEK || !firstFullMonth.isBefore(afterFullMonths)) {
+                addDailyStats(series, user, from, to);
+            } else {
+                addDailyStats(series, user, from, firstFullMonth.minusDays(1));
+                YearMonth lastFullMonth = YearMonth.from(afterFullMonths.minusDays(1));
+                for (OwnerMonthlyStats monthlyStats : ownerMonthlyStatsRepository.findByOwnerIdAndMonthBetween(user.getId(),
+                        firstFullMonth.getYear() * 12 + firstFullMonth.getMonthValue(), lastFullMonth.getYear() * 12 + lastFullMonth.getMonthValue())) {
+                    series.add(LocalDate.of(monthlyStats.getStatYear(), monthlyStats.getStatMonth(), 1), TimeResolution.MONTH,
+                            monthlyStats.getOrderItems(), monthlyStats.getQuantity(), monthlyStats.getEarnings());
+                }
+                addDailyStats(series, user, afterFullMonths, to);
+            }
+            total = series.sum(from, to);
+            points = series.points(from, to, resolution);
+        }
+        EarningsSeriesDto result = new EarningsSeriesDto();
+        result.setFrom(from);
+        result.setTo(to);
+        result.setResolution(resolution);
+        result.setOrderItems(total.getOrderItems());
+        result.setQuantity(total.getQuantity());
+        result.setEarnings(total.getEarnings());
+        for (EarningsSeries.Point point : points) {
+            EarningsSeries.Bucket bucket = point.getBucket();
+            result.getPoints().add(new EarningsPointDto(point.getPeriodStart(), bucket.getOrderItems(), bucket.getQuantity(), bucket.getEarnings()));
+        }
+        return result;
+    }
+
+    private void addDailyStats(EarningsSeries series, User user, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        for (OwnerDailyStats dailyStats : ownerDailyStatsRepository.findByOwnerIdAndStatDayBetween(user.getId(), from, to)) {
+            series.add(dailyStats.getStatDay(), TimeResolution.DAY, dailyStats.getOrderItems(), dailyStats.getQuantity(), dailyStats.getEarnings());
+        }
+    }
+
+    private void writeCsvRow(Writer writer, Object[] row, Map<Long, String> categories, Map<Long, String> subcategories) throws IOException {
+        LocalDateTime rentalStartDate = (LocalDateTime) row[3];
+        LocalDateTime rentalEndDate = (LocalDateTime) row[4];
+        int quantity = (Integer) row[2];
+        double price = (Double) row[5];
+        // same values OrderReceivedDto shows
+        long rentalCost = Math.round(price * quantity * ChronoUnit.DAYS.between(rentalStartDate, rentalEndDate));
+        String imageUrl = (String) row[6];
+        if (imageUrl != null && imageUrl.contains("/api")) {
+            imageUrl = NGROK + imageUrl.substring(imageUrl.indexOf("/api"));
+        }
+        Long productId = (Long) row[7];
+        String[] values = {
+                String.valueOf(row[0]), (String) row[1], String.valueOf(quantity), rentalStartDate.toString(), rentalEndDate.toString(),
+                String.valueOf(rentalCost), imageUrl, String.valueOf(productId), String.valueOf(row[8]), row[9] + " " + row[10],
+                (String) row[11], (String) row[12], categories.get(productId), subcategories.get(productId)
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(writer, values[i]);
+        }
+        writer.write('\n');
+    }
+
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static Map<Long, String> joinNamesByProduct(List<ProductLabelView> labels) {
+        return labels.stream().collect(Collectors.groupingBy(ProductLabelView::getProductId,
+                Collectors.mapping(ProductLabelView::getName, Collectors.joining("; "))));
+    }
 }
@@ -0,0 +1,259 @@
+package com.nineleaps.leaps.service.implementation;
+
+import com.nineleaps.leaps.enums.ImageSize;
+import com.nineleaps.leaps.service.ImageServiceInterface;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.w3c.dom.NodeList;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//renders the thumbnail and medium variants of uploaded jpeg and png images on a small pool, decoding takes a lot of
+//memory so only pool-size images are worked on at once. large photos are subsampled while they are decoded
+@Service
+@Slf4j
+public class ImageServiceImpl implements ImageServiceInterface {
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String APP1_MARKER = "225";
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private final int thumbEdge;
+    private final int mediumEdge;
+    private final float jpegQuality;
+    private final ExecutorService renderPool;
+
+    public ImageServiceImpl(@Value("${leaps.image.variants.thumb-edge:240}") int thumbEdge,
+                            @Value("${leaps.image.variants.medium-edge:960}") int mediumEdge,
+                            @Value("${leaps.image.variants.jpeg-quality:0.82}") float jpegQuality,
+                            @Value("${leaps.image.variants.pool-size:2}") int poolSize) {
+        this.thumbEdge = thumbEdge;
+        this.mediumEdge = mediumEdge;
+        this.jpegQuality = jpegQuality;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderPool = Executors.newFixedThreadPool(poolSize, runnable -> new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet()));
+    }
+
+    // the variants by size, empty when the file is not an image or could not be decoded
+    @Override
+    public Future<Map<ImageSize, byte[]>> renderVariants(String fileName, MultipartFile file) {
+        String format = formatOf(fileName);
+        if (format == null) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        return renderPool.submit(() -> {
+            try {
+                return render(file, format);
+            } catch (IOException | RuntimeException e) {
+                // the original is still served for every size
+                log.warn("Could not render variants of {}", fileName, e);
+                return Collections.emptyMap();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    private Map<ImageSize, byte[]> render(MultipartFile file, String format) throws IOException {
+        BufferedImage original = decode(file);
+        if (original == null) {
+            return Collections.emptyMap();
+        }
+        Map<ImageSize, byte[]> variants = new EnumMap<>(ImageSize.class);
+        // the thumbnail is scaled down from the medium image, not from the original
+        BufferedImage medium = scale(original, mediumEdge, format);
+        variants.put(ImageSize.MEDIUM, encode(medium, format));
+        variants.put(ImageSize.THUMB, encode(scale(medium, thumbEdge, format), format));
+        return variants;
+    }
+
+    // keeps at least twice the medium edge so the downscale still has pixels to average. phones store photos as the
+    // sensor saw them and an exif orientation tag to turn them upright, the variants have no exif so it is applied here
+    private BufferedImage decode(MultipartFile file) throws IOException {
+        try (InputStream inputStream = file.getInputStream(); ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageInputStream == null ? Collections.emptyIterator() : ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, false);
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longEdge / (mediumEdge * 2));
+                int orientation = exifOrientation(reader);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return orient(reader.read(0, param), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // the orientation tag of a jpeg's exif block, 1 (upright) when there is none or the markers cannot be read
+    private static int exifOrientation(ImageReader reader) {
+        IIOMetadata metadata;
+        try {
+            metadata = reader.getImageMetadata(0);
+        } catch (IOException e) {
+            return 1;
+        }
+        if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return 1;
+        }
+        NodeList markers = ((IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT)).getElementsByTagName("unknown");
+        for (int i = 0; i < markers.getLength(); i++) {
+            IIOMetadataNode marker = (IIOMetadataNode) markers.item(i);
+            if (APP1_MARKER.equals(marker.getAttribute("MarkerTag")) && marker.getUserObject() instanceof byte[]) {
+                int orientation = exifOrientation((byte[]) marker.getUserObject());
+                if (orientation != 1) {
+                    return orientation;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // "Exif\0\0" then a tiff header and the first ifd, whose entries are tag, type, count and a value that a short
+    // fills from the left
+    private static int exifOrientation(byte[] app1) {
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 1;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 0 || ifd + 2 > tiff.limit()) {
+            return 1;
+        }
+        int entries = tiff.getShort(ifd) & 0xffff;
+        for (int i = 0; i < entries && ifd + 2 + i * 12 + 12 <= tiff.limit(); i++) {
+            int entry = ifd + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xffff) == ORIENTATION_TAG) {
+                int orientation = tiff.getShort(entry + 8) & 0xffff;
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    // turns and mirrors the image as the exif orientation says, 5 to 8 swap width and height
+    private static BufferedImage orient(BufferedImage source, int orientation) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        AffineTransform transform;
+        switch (orientation) {
+            case 2: transform = new AffineTransform(-1, 0, 0, 1, width, 0); break;
+            case 3: transform = new AffineTransform(-1, 0, 0, -1, width, height); break;
+            case 4: transform = new AffineTransform(1, 0, 0, -1, 0, height); break;
+            case 5: transform = new AffineTransform(0, 1, 1, 0, 0, 0); break;
+            case 6: transform = new AffineTransform(0, 1, -1, 0, height, 0); break;
+            case 7: transform = new AffineTransform(0, -1, -1, 0, height, width); break;
+            case 8: transform = new AffineTransform(0, -1, 1, 0, 0, width); break;
+            default: return source;
+        }
+        boolean swap = orientation >= 5;
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height,
+                source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // halves the image until it is within twice the target and then scales it the rest of the way, one bilinear pass
+    // straight to a small size skips most of the source pixels and looks jagged
+    private BufferedImage scale(BufferedImage source, int maxEdge, String format) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double factor = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, format);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, String format) {
+        boolean jpeg = "jpg".equals(format);
+        BufferedImage target = new BufferedImage(width, height, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // jpeg has no alpha, transparent pixels would otherwise turn black
+            graphics.drawImage(source, 0, 0, width, height, jpeg ? Color.WHITE : null, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!"jpg".equals(format)) {
+            ImageIO.write(image, format, outputStream);
+            return outputStream.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String formatOf(String fileName) {
+        String lowerCase = fileName.toLowerCase();
+        if (lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg")) {
+            return "jpg";
+        }
+        return lowerCase.endsWith(".png") ? "png" : null;
+    }
+}
@@ -0,0 +1,119 @@
+package com.nineleaps.leaps.service.implementation;
+
+import com.nineleaps.leaps.repository.OrderRepository;
+import com.nineleaps.leaps.service.InvoiceExportServiceInterface;
+import com.nineleaps.leaps.service.OrderServiceInterface;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+//zips the invoices of every order in scope straight into the given stream. orders are paged by id,
+//a few invoices render ahead on a small pool and are written in order id order as each one is ready.
+//not transactional on purpose: each invoice loads its order in its own transaction on the rendering thread
+@Service
+@Slf4j
+public class InvoiceExportServiceImpl implements InvoiceExportServiceInterface {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderServiceInterface orderService;
+    private final int parallelism;
+    private final ExecutorService renderPool;
+
+    public InvoiceExportServiceImpl(OrderRepository orderRepository, OrderServiceInterface orderService,
+                                    @Value("${leaps.invoice.export.parallelism:3}") int parallelism) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.parallelism = parallelism;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderPool = Executors.newFixedThreadPool(parallelism, runnable -> new Thread(runnable, "invoice-export-" + threadNumber.incrementAndGet()));
+    }
+
+    @Override
+    public void exportInvoices(LocalDate from, LocalDate to, Long ownerId, Long borrowerId, OutputStream outputStream) throws IOException {
+        LocalDateTime fromTime = from == null ? null : from.atStartOfDay();
+        LocalDateTime toTime = to == null ? null : to.plusDays(1).atStartOfDay();
+        // at most parallelism invoices are rendered or waiting to be written at any time
+        Deque<RenderedInvoice> window = new ArrayDeque<>();
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        // pdfs are compressed already
+        zip.setLevel(Deflater.BEST_SPEED);
+        try {
+            long cursorId = 0;
+            List<Long> orderIds;
+            do {
+                orderIds = orderRepository.findOrderIdsForExport(fromTime, toTime, ownerId, borrowerId, cursorId, PageRequest.of(0, PAGE_SIZE));
+                for (Long orderId : orderIds) {
+                    if (window.size() == parallelism) {
+                        writeEntry(zip, window.poll());
+                    }
+                    window.add(new RenderedInvoice(orderId, renderPool.submit(() -> render(orderId))));
+                    cursorId = orderId;
+                }
+            } while (orderIds.size() == PAGE_SIZE);
+            while (!window.isEmpty()) {
+                writeEntry(zip, window.poll());
+            }
+            zip.finish();
+        } finally {
+            window.forEach(invoice -> invoice.pdf.cancel(true));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    private byte[] render(Long orderId) throws Exception {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        orderService.writeInvoicePdf(orderId, pdf);
+        return pdf.toByteArray();
+    }
+
+    private void writeEntry(ZipOutputStream zip, RenderedInvoice invoice) throws IOException {
+        byte[] pdf;
+        try {
+            pdf = invoice.pdf.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Invoice export was interrupted", e);
+        } catch (ExecutionException e) {
+            log.error("Invoice of order {} could not be rendered", invoice.orderId, e.getCause());
+            throw new IOException("Invoice of order " + invoice.orderId + " could not be rendered", e.getCause());
+        }
+        zip.putNextEntry(new ZipEntry("invoice-" + invoice.orderId + ".pdf"));
+        zip.write(pdf);
+        zip.closeEntry();
+    }
+
+    private static class RenderedInvoice {
+        private final Long orderId;
+        private final Future<byte[]> pdf;
+
+        private RenderedInvoice(Long orderId, Future<byte[]> pdf) {
+            this.orderId = orderId;
+            this.pdf = pdf;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.nineleaps.leaps.service.implementation;
+
+import com.itextpdf.text.DocumentException;
+import com.nineleaps.leaps.cache.InvoiceCache;
+import com.nineleaps.leaps.model.Address;
+import com.nineleaps.leaps.model.User;
+import com.nineleaps.leaps.model.orders.Order;
+import com.nineleaps.leaps.model.orders.OrderItem;
+import com.nineleaps.leaps.service.InvoiceServiceInterface;
+import com.nineleaps.leaps.service.OrderServiceInterface;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+@Transactional
+public class InvoiceServiceImpl implements InvoiceServiceInterface {
+
+    private final OrderServiceInterface orderService;
+    private final InvoiceCache invoiceCache;
+
+    //digest of everything printed on the invoice, changes whenever the invoice would
+    @Override
+    public String invoiceVersion(Order order) {
+        StringBuilder content = new StringBuilder();
+        content.append(order.getId()).append('|').append(order.getCreateDate()).append('|').append(order.getTotalPrice());
+        User borrower = order.getUser();
+        content.append('|').append(borrower.getFirstName()).append('|').append(borrower.getLastName());
+        if (borrower.getAddresses() != null) {
+            borrower.getAddresses().stream().map(Address::getId).sorted().forEach(id -> content.append('|').append(id));
+        }
+        List<OrderItem> orderItems = new ArrayList<>(order.getOrderItems());
+        orderItems.sort(Comparator.comparing(OrderItem::getId));
+        for (OrderItem orderItem : orderItems) {
+            content.append('\n').append(orderItem.getId()).append('|').append(orderItem.getName())
+                    .append('|').append(orderItem.getQuantity()).append('|').append(orderItem.getPrice())
+                    .append('|').append(orderItem.getProduct().getBrand())
+                    .append('|').append(orderItem.getRentalStartDate()).append('|').append(orderItem.getRentalEndDate())
+                    .append('|').append(orderItem.getStatus()).append('|').append(orderItem.getSecurityDeposit());
+        }
+        return DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public byte[] getInvoice(Order order, User user, String version) throws IOException {
+        return invoiceCache.get(order.getId(), version, outputStream -> {
+            try {
+                orderService.writeInvoicePdf(order.getId(), user, outputStream);
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            }
+        });
+    }
+}
@@ -4,8 +4,11 @@ import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
+import com.nineleaps.leaps.analytics.OrderItemFactStore;
+import com.nineleaps.leaps.cache.DashboardCache;
 import com.nineleaps.leaps.dto.cart.CartDto;
 import com.nineleaps.leaps.dto.cart.CartItemDto;
+import com.nineleaps.leaps.dto.dashboard.OrderItemsPageDto;
 import com.nineleaps.leaps.dto.orders.OrderDto;
 import com.nineleaps.leaps.dto.orders.OrderItemDto;
 import com.nineleaps.leaps.dto.orders.OrderItemsData;
@@ -13,16 +16,18 @@ import com.nineleaps.leaps.dto.orders.OrderReceivedDto;
 import com.nineleaps.leaps.dto.product.ProductDto;
 import com.nineleaps.leaps.exceptions.OrderNotFoundException;
 import com.nineleaps.leaps.dto.pushNotification.PushNotificationRequest;
+import com.nineleaps.leaps.model.OwnerMonthlyStats;
 import com.nineleaps.leaps.model.product.Product;
 import com.nineleaps.leaps.model.User;
-import com.nineleaps.leaps.model.categories.Category;
-import com.nineleaps.leaps.model.categories.SubCategory;
 import com.nineleaps.leaps.model.orders.Order;
 import com.nineleaps.leaps.model.orders.OrderItem;
 import com.nineleaps.leaps.repository.OrderItemRepository;
 import com.nineleaps.leaps.repository.OrderRepository;
+import com.nineleaps.leaps.repository.OwnerDailyStatsRepository;
+import com.nineleaps.leaps.repository.OwnerMonthlyStatsRepository;
 import com.nineleaps.leaps.repository.ProductRepository;
 import com.nineleaps.leaps.service.CartServiceInterface;
+import com.nineleaps.leaps.service.DashboardServiceInterface;
 import com.nineleaps.leaps.service.OrderServiceInterface;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +39,7 @@ import org.springframework.stereotype.Service;
 import javax.transaction.Transactional;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.time.*;
 import java.time.temporal.ChronoUnit;
@@ -49,12 +55,19 @@ import static com.nineleaps.leaps.service.implementation.ProductServiceImpl.getD
 @AllArgsConstructor
 @Slf4j
 public class OrderServiceImpl implements OrderServiceInterface {
+    private static final int MAX_DATE_SELECTOR_PAGE_SIZE = 1000;
+
     private final OrderRepository orderRepository;
     private final CartServiceInterface cartService;
     private final OrderItemRepository orderItemRepository;
     private final EmailServiceImpl emailServiceImpl;
     private final ProductRepository productRepository;
     private final PushNotificationServiceImpl pushNotificationService;
+    private final OwnerMonthlyStatsRepository ownerMonthlyStatsRepository;
+    private final OwnerDailyStatsRepository ownerDailyStatsRepository;
+    private final DashboardServiceInterface dashboardService;
+    private final DashboardCache dashboardCache;
+    private final OrderItemFactStore orderItemFactStore;
 
     @Override
     public void placeOrder(User user, String sessionId) {
@@ -86,6 +99,9 @@ public class OrderServiceImpl implements OrderServiceInterface {
             //add to orderItem table
             orderItemRepository.save(orderItem);
             orderItemList.add(orderItem);
+            recordOwnerStats(orderItem);
+            orderItemFactStore.append(orderItem);
+            dashboardCache.invalidateOwner(orderItem.getOwnerId());
             //Reduce quantity from product after placing order
             Product product = orderItem.getProduct();
             product.setRentedQuantities(product.getRentedQuantities() + cartItemDto.getQuantity());
@@ -158,6 +174,7 @@ public class OrderServiceImpl implements OrderServiceInterface {
     public void orderStatus(OrderItem orderItem, String status) {
         orderItem.setStatus(status);
         orderItemRepository.save(orderItem);
+        dashboardCache.invalidateOwner(orderItem.getOwnerId());
         if (status.equals("ORDER RETURNED")) {
             Product product = orderItem.getProduct();
             product.setAvailableQuantities(product.getAvailableQuantities() + orderItem.getQuantity());
@@ -166,6 +183,15 @@ public class OrderServiceImpl implements OrderServiceInterface {
         }
     }
 
+    //keeps owner_monthly_stats and owner_daily_stats in step with order_items, inside the placing transaction
+    private void recordOwnerStats(OrderItem orderItem) {
+        YearMonth month = YearMonth.from(orderItem.getRentalStartDate());
+        long rentalPeriod = ChronoUnit.DAYS.between(orderItem.getRentalStartDate(), orderItem.getRentalEndDate());
+        double earnings = orderItem.getPrice() * orderItem.getQuantity() * rentalPeriod;
+        ownerMonthlyStatsRepository.addOrderItem(orderItem.getOwnerId(), month.getYear(), month.getMonthValue(), orderItem.getQuantity(), earnings);
+        ownerDailyStatsRepository.addOrderItem(orderItem.getOwnerId(), orderItem.getRentalStartDate().toLocalDate(), orderItem.getQuantity(), earnings);
+    }
+
     public void sendDelayChargeEmail(OrderItem orderItem, double securityDeposit) {
         String email = orderItem.getOrder().getUser().getEmail();
         String subject = "\"Reminder: Your rental period is ended.";
@@ -208,6 +234,7 @@ public class OrderServiceImpl implements OrderServiceInterface {
                 orderItem.setSecurityDeposit(0);
                 orderItemRepository.save(orderItem);
             }
+            dashboardCache.invalidateOwner(orderItem.getOwnerId());
             return remainingAmount;
         } else {
             return securityDeposit;
@@ -216,166 +243,79 @@ public class OrderServiceImpl implements OrderServiceInterface {
 
     @Override
     public Map<Year, Map<YearMonth, Map<String, Object>>> onClickDashboardYearWiseData(User user) {
-        Map<Year, Map<YearMonth, Double>> totalEarningsByYearMonth = new HashMap<>();
-        Map<Year, Map<YearMonth, Integer>> totalItemsByYearMonth = new HashMap<>();
-
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user)) {
-                    int quantity = orderItem.getQuantity();
-                    double price = orderItem.getPrice();
-                    LocalDateTime rentalStartDate = orderItem.getRentalStartDate();
-                    LocalDateTime rentalEndDate = orderItem.getRentalEndDate();
-
-                    long rentalDurationInDays = ChronoUnit.DAYS.between(rentalStartDate, rentalEndDate);
-                    double earnings = price * quantity * rentalDurationInDays;
-
-                    Year year = Year.from(rentalStartDate);
-                    YearMonth month = YearMonth.from(rentalStartDate);
-
-                    totalEarningsByYearMonth.computeIfAbsent(year, k -> new HashMap<>())
-                            .merge(month, earnings, Double::sum);
-
-                    totalItemsByYearMonth.computeIfAbsent(year, k -> new HashMap<>())
-                            .merge(month, quantity, Integer::sum);
-                }
-            }
-        }
+        return dashboardCache.get(user.getId(), "analytics-yearly", () -> computeYearWiseData(user));
+    }
 
+    private Map<Year, Map<YearMonth, Map<String, Object>>> computeYearWiseData(User user) {
         Map<Year, Map<YearMonth, Map<String, Object>>> result = new HashMap<>();
-        for (Map.Entry<Year, Map<YearMonth, Double>> yearEntry : totalEarningsByYearMonth.entrySet()) {
-            Year year = yearEntry.getKey();
-            Map<YearMonth, Double> earningsByMonth = yearEntry.getValue();
-            Map<YearMonth, Integer> itemsByMonth = totalItemsByYearMonth.get(year);
-            Map<YearMonth, Map<String, Object>> yearData = new HashMap<>();
-            for (Map.Entry<YearMonth, Double> monthEntry : earningsByMonth.entrySet()) {
-                YearMonth month = monthEntry.getKey();
+        if (orderItemFactStore.isReady()) {
+            OrderItemFactStore.MonthlyTotals totals = orderItemFactStore.monthlyTotals(user.getId());
+            for (int i = 0; i < totals.size(); i++) {
+                if (totals.orderItems(i) == 0) {
+                    continue;
+                }
+                YearMonth month = totals.month(i);
                 Map<String, Object> monthData = new HashMap<>();
-                monthData.put(TOTAL_NUMBER, itemsByMonth.get(month));
-                monthData.put(TOTAL_INCOME, monthEntry.getValue());
-                yearData.put(month, monthData);
+                monthData.put(TOTAL_NUMBER, totals.quantity(i));
+                monthData.put(TOTAL_INCOME, totals.earnings(i));
+                result.computeIfAbsent(Year.of(month.getYear()), k -> new HashMap<>()).put(month, monthData);
             }
-            result.put(year, yearData);
+            return result;
+        }
+        for (OwnerMonthlyStats monthlyStats : ownerMonthlyStatsRepository.findByOwnerId(user.getId())) {
+            Year year = Year.of(monthlyStats.getStatYear());
+            YearMonth month = YearMonth.of(monthlyStats.getStatYear(), monthlyStats.getStatMonth());
+            Map<String, Object> monthData = new HashMap<>();
+            monthData.put(TOTAL_NUMBER, (int) monthlyStats.getQuantity());
+            monthData.put(TOTAL_INCOME, monthlyStats.getEarnings());
+            result.computeIfAbsent(year, k -> new HashMap<>()).put(month, monthData);
         }
-
         return result;
     }
 
     @Override
-    public Map<YearMonth, List<OrderReceivedDto>> getOrderedItemsByMonthBwDates(User user, LocalDateTime startDate, LocalDateTime endDate) {
-        Map<YearMonth, List<OrderReceivedDto>> orderedItemsByMonth = new HashMap<>();
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user) && orderItem.getRentalStartDate().isAfter(startDate) && orderItem.getRentalStartDate().isBefore(endDate)) {
-                    LocalDateTime rentalStartDate = orderItem.getRentalStartDate();
-                    YearMonth month = YearMonth.from(rentalStartDate);
-                    // Retrieve the list of order items for the current month
-                    List<OrderReceivedDto> monthOrderItems = orderedItemsByMonth.getOrDefault(month, new ArrayList<>());
-                    // Add the current order item to the list
-                    monthOrderItems.add(new OrderReceivedDto(orderItem));
-                    // Update the map with the updated list of order items
-                    orderedItemsByMonth.put(month, monthOrderItems);
-                }
-            }
+    public OrderItemsPageDto getOrderedItemsByMonthBwDates(User user, LocalDateTime startDate, LocalDateTime endDate, LocalDateTime cursorDate, Long cursorId, int pageSize) {
+        int limit = Math.max(1, Math.min(pageSize, MAX_DATE_SELECTOR_PAGE_SIZE));
+        return dashboardCache.get(user.getId(), "date-selector", () -> computeOrderedItemsByMonthBwDates(user, startDate, endDate, cursorDate, cursorId, limit),
+                startDate, endDate, cursorDate, cursorId, limit);
+    }
+
+    private OrderItemsPageDto computeOrderedItemsByMonthBwDates(User user, LocalDateTime startDate, LocalDateTime endDate, LocalDateTime cursorDate, Long cursorId, int pageSize) {
+        // first page starts right at startDate, later pages continue after the last (rentalStartDate, orderItemId) the client got
+        if (cursorDate == null || cursorId == null) {
+            cursorDate = startDate;
+            cursorId = 0L;
+        }
+        // one row past the page tells whether there is another page
+        List<OrderItem> orderItems = orderItemRepository.findOwnerItemsBetween(user.getId(), startDate, endDate, cursorDate, cursorId, PageRequest.of(0, pageSize + 1));
+        OrderItemsPageDto page = new OrderItemsPageDto();
+        page.setHasMore(orderItems.size() > pageSize);
+        if (page.isHasMore()) {
+            orderItems = orderItems.subList(0, pageSize);
+            OrderItem last = orderItems.get(pageSize - 1);
+            page.setNextCursorDate(last.getRentalStartDate());
+            page.setNextCursorId(last.getId());
+        }
+        for (OrderItem orderItem : orderItems) {
+            YearMonth month = YearMonth.from(orderItem.getRentalStartDate());
+            page.getOrderItems().computeIfAbsent(month, k -> new ArrayList<>()).add(new OrderReceivedDto(orderItem));
         }
-        return orderedItemsByMonth;
+        return page;
     }
 
     @Override
     public Map<YearMonth, List<OrderReceivedDto>> getOrderedItemsByMonth(User user) {
-        Map<YearMonth, List<OrderReceivedDto>> orderedItemsByMonth = new HashMap<>();
-
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user)) {
-                    LocalDateTime rentalStartDate = orderItem.getRentalStartDate();
-                    YearMonth month = YearMonth.from(rentalStartDate);
-                    // Retrieve the list of order items for the current month
-                    List<OrderReceivedDto> monthOrderItems = orderedItemsByMonth.getOrDefault(month, new ArrayList<>());
-                    // Add the current order item to the list
-                    monthOrderItems.add(new OrderReceivedDto(orderItem));
-                    // Update the map with the updated list of order items
-                    orderedItemsByMonth.put(month, monthOrderItems);
-                }
-            }
-        }
-        return orderedItemsByMonth;
+        return dashboardService.summary(user).getMonthlyOrderItems();
     }
 
     @Override
     public Map<YearMonth, Map<String, OrderItemsData>> getOrderItemsBySubCategories(User user) {
-        Map<YearMonth, Map<String, OrderItemsData>> orderItemsSubcategoryWise = new HashMap<>();
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user)) {
-                    List<SubCategory> subcategories = orderItem.getProduct().getSubCategories();
-                    YearMonth month = YearMonth.from(orderItem.getRentalStartDate());
-                    // Retrieve the map of subcategories for the current month
-                    Map<String, OrderItemsData> orderItemsBySubcategoryPerMonth = orderItemsSubcategoryWise.getOrDefault(month, new HashMap<>());
-                    for (SubCategory subcategory : subcategories) {
-                        // Retrieve the order items data for the current subcategory and month
-                        OrderItemsData orderItemsData = orderItemsBySubcategoryPerMonth.getOrDefault(subcategory.getSubcategoryName(), new OrderItemsData());
-                        // Increment the total number of orders for the current subcategory
-                        orderItemsData.incrementTotalOrders(orderItem.getQuantity());
-                        // Retrieve the list of order items for the current subcategory and month
-                        List<OrderReceivedDto> orderItemsBySubcategory = orderItemsData.getOrderItems();
-                        // If the list doesn't exist, create a new one
-                        if (orderItemsBySubcategory == null) {
-                            orderItemsBySubcategory = new ArrayList<>();
-                        }
-                        // Add the current order item to the list
-                        OrderReceivedDto orderReceivedDto = new OrderReceivedDto(orderItem);
-                        orderItemsBySubcategory.add(orderReceivedDto);
-                        // Update the order items data with the updated list of order items
-                        orderItemsData.setOrderItems(orderItemsBySubcategory);
-                        // Update the map with the updated order items data for the current subcategory and month
-                        orderItemsBySubcategoryPerMonth.put(subcategory.getSubcategoryName(), orderItemsData);
-
-                        // Update the map with the updated map of subcategories per month
-                        orderItemsSubcategoryWise.put(month, orderItemsBySubcategoryPerMonth);
-                    }
-                }
-            }
-        }
-        return orderItemsSubcategoryWise;
+        return dashboardService.summary(user).getSubcategoriesAnalytics();
     }
 
     @Override
     public Map<YearMonth, Map<String, OrderItemsData>> getOrderItemsByCategories(User user) {
-        Map<YearMonth, Map<String, OrderItemsData>> orderItemsCategoryWise = new HashMap<>();
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                if (orderItem.getProduct().getUser().equals(user)) {
-                    List<Category> categories = orderItem.getProduct().getCategories();
-                    YearMonth month = YearMonth.from(orderItem.getRentalStartDate());
-                    // Retrieve the map of subcategories for the current month
-                    Map<String, OrderItemsData> orderItemsByCategoryPerMonth = orderItemsCategoryWise.getOrDefault(month, new HashMap<>());
-                    for (Category category : categories) {
-                        // Retrieve the order items data for the current subcategory and month
-                        OrderItemsData orderItemsData = orderItemsByCategoryPerMonth.getOrDefault(category.getCategoryName(), new OrderItemsData());
-                        // Increment the total number of orders for the current subcategory
-                        orderItemsData.incrementTotalOrders(orderItem.getQuantity());
-                        // Retrieve the list of order items for the current subcategory and month
-                        List<OrderReceivedDto> orderItemsByCategory = orderItemsData.getOrderItems();
-                        // If the list doesn't exist, create a new one
-                        if (orderItemsByCategory == null) {
-                            orderItemsByCategory = new ArrayList<>();
-                        }
-                        // Add the current order item to the list
-                        OrderReceivedDto orderReceivedDto = new OrderReceivedDto(orderItem);
-                        orderItemsByCategory.add(orderReceivedDto);
-                        // Update the order items data with the updated list of order items
-                        orderItemsData.setOrderItems(orderItemsByCategory);
-                        // Update the map with the updated order items data for the current subcategory and month
-                        orderItemsByCategoryPerMonth.put(category.getCategoryName(), orderItemsData);
-                        // Update the map with the updated map of subcategories per month
-                        orderItemsCategoryWise.put(month, orderItemsByCategoryPerMonth);
-                    }
-                }
-            }
-        }
-        return orderItemsCategoryWise;
-
+        return dashboardService.summary(user).getCategoriesAnalytics();
     }
 
     @Override
@@ -423,12 +363,31 @@ public class OrderServiceImpl implements OrderServiceInterface {
     }
 
     public byte[] generateInvoicePDF(List<OrderItem> orderItems, User user, Order order) throws IOException, DocumentException {
-
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        writeInvoicePdf(orderItems, user, order, byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    //runs on the response writing thread, so the order and its lazy items are loaded in this transaction
+    @Override
+    public void writeInvoicePdf(Long orderId, User user, OutputStream outputStream) throws DocumentException {
+        Order order = getOrder(orderId, user);
+        writeInvoicePdf(order.getOrderItems(), user, order, outputStream);
+    }
+
+    //invoice of any order, addressed to the borrower who placed it
+    @Override
+    public void writeInvoicePdf(Long orderId, OutputStream outputStream) throws DocumentException {
+        Order order = orderRepository.findById(orderId).orElseThrow(() -> new OrderNotFoundException("Order not found"));
+        writeInvoicePdf(order.getOrderItems(), order.getUser(), order, outputStream);
+    }
+
+    private void writeInvoicePdf(List<OrderItem> orderItems, User user, Order order, OutputStream outputStream) throws DocumentException {
         Document document = new Document();
 
         try {
-            PdfWriter.getInstance(document, byteArrayOutputStream);
+            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            writer.setCloseStream(false);
             document.open();
 
             Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
@@ -489,8 +448,6 @@ public class OrderServiceImpl implements OrderServiceInterface {
         } finally {
             document.close();
         }
-
-        return byteArrayOutputStream.toByteArray();
     }
 
     @Override
@@ -3,20 +3,18 @@ package com.nineleaps.leaps.service.implementation;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
 import com.nineleaps.leaps.model.User;
+import com.nineleaps.leaps.service.ChartServiceInterface;
 import com.nineleaps.leaps.service.DashboardServiceInterface;
 import com.nineleaps.leaps.service.PdfServiceInterface;
 import lombok.AllArgsConstructor;
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtilities;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.YearMonth;
 import java.util.Map;
 
@@ -28,7 +26,13 @@ import static com.nineleaps.leaps.config.MessageStrings.TOTAL_NUMBER;
 @Transactional
 public class PdfServiceImpl implements PdfServiceInterface {
 
+    // looked up once, FontFactory resolves the font on every call
+    private static final Font HEADING_FONT = FontFactory.getFont(FontFactory.COURIER_BOLD, 30, BaseColor.BLACK);
+    private static final Font SUBHEADING_FONT = FontFactory.getFont(FontFactory.COURIER_OBLIQUE, 18, BaseColor.BLACK);
+    private static final Font TABLE_HEADER_FONT = FontFactory.getFont(FontFactory.COURIER_BOLD, 12, BaseColor.BLACK);
+
     private final DashboardServiceInterface dashboardService;
+    private final ChartServiceInterface chartService;
 
     private void setCellPadding(PdfPCell cell) {
         cell.setPadding(6);
@@ -39,12 +43,25 @@ public class PdfServiceImpl implements PdfServiceInterface {
         return new Document();
     }
 
+    //pdf goes out as it is written, the caller owns and closes the stream
+    @Override
+    public void writeReport(User user, OutputStream outputStream) throws DocumentException, IOException {
+        Document document = getPdf(user);
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        writer.setCloseStream(false);
+        document.open();
+        try {
+            addContent(document, user);
+        } finally {
+            document.close();
+        }
+    }
+
     @Override
     public void addContent(Document document, User user) throws DocumentException, IOException {
 
         // Add header
-        Font headingFont = FontFactory.getFont(FontFactory.COURIER_BOLD, 30, BaseColor.BLACK);
-        Chunk chunkHeading = new Chunk("Leaps", headingFont);
+        Chunk chunkHeading = new Chunk("Leaps", HEADING_FONT);
         Paragraph headingParagraph = new Paragraph(chunkHeading);
         headingParagraph.setAlignment(Element.ALIGN_CENTER);
         document.add(headingParagraph);
@@ -52,8 +69,7 @@ public class PdfServiceImpl implements PdfServiceInterface {
         document.add(new Paragraph(" "));
 
         // Add subheading
-        Font subheadingFont = FontFactory.getFont(FontFactory.COURIER_OBLIQUE, 18, BaseColor.BLACK);
-        Chunk chunkSubheading = new Chunk("Report for " + user.getFirstName() + " " + user.getLastName(), subheadingFont);
+        Chunk chunkSubheading = new Chunk("Report for " + user.getFirstName() + " " + user.getLastName(), SUBHEADING_FONT);
         Paragraph subheadingParagraph = new Paragraph(chunkSubheading);
         subheadingParagraph.setAlignment(Element.ALIGN_CENTER);
         document.add(subheadingParagraph);
@@ -69,10 +85,9 @@ public class PdfServiceImpl implements PdfServiceInterface {
         // Set cell alignment
         table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
         // Add table headers
-        Font tableHeaderFont = FontFactory.getFont(FontFactory.COURIER_BOLD, 12, BaseColor.BLACK);
-        PdfPCell cell1 = new PdfPCell(new Phrase("Month", tableHeaderFont));
-        PdfPCell cell2 = new PdfPCell(new Phrase("Total Earnings", tableHeaderFont));
-        PdfPCell cell3 = new PdfPCell(new Phrase("Number of Items Sold", tableHeaderFont));
+        PdfPCell cell1 = new PdfPCell(new Phrase("Month", TABLE_HEADER_FONT));
+        PdfPCell cell2 = new PdfPCell(new Phrase("Total Earnings", TABLE_HEADER_FONT));
+        PdfPCell cell3 = new PdfPCell(new Phrase("Number of Items Sold", TABLE_HEADER_FONT));
         setCellPadding(cell1);
         setCellPadding(cell2);
         setCellPadding(cell3);
@@ -109,24 +124,12 @@ public class PdfServiceImpl implements PdfServiceInterface {
             dataset.addValue(numberOfItems, "Number of Items Sold", monthString);
         }
 
-        JFreeChart chart = ChartFactory.createBarChart(
-                "Monthly Performance", // Chart title
-                "Month", // X-axis label
-                "Value", // Y-axis label
-                dataset, // Dataset
-                PlotOrientation.VERTICAL, // Plot orientation
-                true, // Show legend
-                true, // Show tooltips
-                false // Show URLs
-        );
-
         // Set the width and height of the chart
         int chartWidth = 500;
         int chartHeight = 300;
-        // Convert the chart to an image and add it to the PDF
-        ByteArrayOutputStream chartImageStream = new ByteArrayOutputStream();
-        ChartUtilities.writeChartAsPNG(chartImageStream, chart, chartWidth, chartHeight);
-        Image chartImage = Image.getInstance(chartImageStream.toByteArray());
+        // Render the chart to an image and add it to the PDF
+        byte[] chartPng = chartService.barChartPng("Monthly Performance", "Month", "Value", dataset, chartWidth, chartHeight);
+        Image chartImage = Image.getInstance(chartPng);
         document.add(chartImage);
 
     }
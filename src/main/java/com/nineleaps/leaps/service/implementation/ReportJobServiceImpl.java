@@ -0,0 +1,235 @@
+package com.nineleaps.leaps.service.implementation;
+
+import com.nineleaps.leaps.dto.report.ReportJobDto;
+import com.nineleaps.leaps.enums.ReportJobStatus;
+import com.nineleaps.leaps.exceptions.CustomException;
+import com.nineleaps.leaps.model.User;
+import com.nineleaps.leaps.repository.OwnerMonthlyStatsRepository;
+import com.nineleaps.leaps.service.PdfServiceInterface;
+import com.nineleaps.leaps.service.ReportJobServiceInterface;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+//builds owner reports off the request threads. jobs wait in a priority queue for a fixed number of workers,
+//the finished pdf is kept on local disk until the retention period is over
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobServiceInterface {
+
+    private static final String OWNER_REPORT = "owner-report";
+
+    private final PdfServiceInterface pdfService;
+    private final OwnerMonthlyStatsRepository ownerMonthlyStatsRepository;
+    private final Path reportDirectory;
+    private final int maxQueuedJobs;
+    private final long retentionMinutes;
+    private final long costWeightMillis;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // one queued or running job per owner and parameters, identical requests get that job back
+    private final Map<String, ReportJob> inFlightJobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ReportJobServiceImpl(PdfServiceInterface pdfService, OwnerMonthlyStatsRepository ownerMonthlyStatsRepository,
+                                @Value("${leaps.reports.directory:${java.io.tmpdir}/leaps-reports}") String reportDirectory,
+                                @Value("${leaps.reports.workers:2}") int workerCount,
+                                @Value("${leaps.reports.max-queued:100}") int maxQueuedJobs,
+                                @Value("${leaps.reports.retention-minutes:60}") long retentionMinutes,
+                                @Value("${leaps.reports.cost-weight-ms:1}") long costWeightMillis) throws IOException {
+        this.pdfService = pdfService;
+        this.ownerMonthlyStatsRepository = ownerMonthlyStatsRepository;
+        this.reportDirectory = Files.createDirectories(Paths.get(reportDirectory));
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.retentionMinutes = retentionMinutes;
+        this.costWeightMillis = costWeightMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                runnable -> new Thread(runnable, "report-worker-" + threadNumber.incrementAndGet()));
+    }
+
+    @Override
+    public ReportJobDto submitOwnerReport(User user) {
+        String key = user.getId() + ":" + OWNER_REPORT;
+        ReportJob[] created = new ReportJob[1];
+        ReportJob job = inFlightJobs.computeIfAbsent(key, k -> {
+            if (workers.getQueue().size() >= maxQueuedJobs) {
+                throw new CustomException("Too many reports are being generated, please try again later");
+            }
+            created[0] = new ReportJob(UUID.randomUUID().toString(), key, user);
+            return created[0];
+        });
+        if (created[0] != null) {
+            jobs.put(job.id, job);
+            workers.execute(new ReportTask(job, deadline(user)));
+        }
+        return toDto(job);
+    }
+
+    @Override
+    public ReportJobDto getJob(String jobId, User user) {
+        return toDto(findJob(jobId, user));
+    }
+
+    @Override
+    public Resource getReportFile(String jobId, User user) {
+        ReportJob job = findJob(jobId, user);
+        if (job.status != ReportJobStatus.DONE) {
+            throw new CustomException("Report is not ready yet");
+        }
+        return new FileSystemResource(job.file);
+    }
+
+    //drops finished jobs older than the retention period with their files, and files left behind by earlier runs
+    @Scheduled(fixedDelayString = "${leaps.reports.cleanup-interval-ms:600000}")
+    public void removeExpiredReports() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.finishedAt != null && job.finishedAt.isBefore(cutoff);
+            if (expired && job.file != null) {
+                deleteQuietly(job.file);
+            }
+            return expired;
+        });
+        long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try (Stream<Path> files = Files.list(reportDirectory)) {
+            files.filter(file -> !jobs.containsKey(jobId(file)) && file.toFile().lastModified() < cutoffMillis)
+                    .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clean up report directory {}", reportDirectory, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // cheap reports may overtake expensive ones by a bounded amount, so nothing waits forever. the cost is the owner's
+    // order item count from owner_monthly_stats, which every placed order updates
+    private long deadline(User user) {
+        long cost = ownerMonthlyStatsRepository.sumOrderItemsByOwnerId(user.getId());
+        return System.currentTimeMillis() + cost * costWeightMillis;
+    }
+
+    private void generate(ReportJob job) {
+        job.status = ReportJobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        Path partFile = reportDirectory.resolve(job.id + ".pdf.part");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(partFile))) {
+                pdfService.writeReport(job.user, outputStream);
+            }
+            job.file = Files.move(partFile, reportDirectory.resolve(job.id + ".pdf"), StandardCopyOption.ATOMIC_MOVE);
+            job.status = ReportJobStatus.DONE;
+        } catch (Exception e) {
+            log.error("Report job {} failed", job.id, e);
+            deleteQuietly(partFile);
+            job.error = "Report generation failed";
+            job.status = ReportJobStatus.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            inFlightJobs.remove(job.key, job);
+        }
+    }
+
+    private ReportJob findJob(String jobId, User user) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || !job.user.getId().equals(user.getId())) {
+            throw new CustomException("Report job not found");
+        }
+        return job;
+    }
+
+    private ReportJobDto toDto(ReportJob job) {
+        ReportJobDto dto = new ReportJobDto();
+        dto.setJobId(job.id);
+        dto.setStatus(job.status);
+        dto.setCreatedAt(job.createdAt);
+        dto.setStartedAt(job.startedAt);
+        dto.setFinishedAt(job.finishedAt);
+        dto.setError(job.error);
+        if (job.status == ReportJobStatus.DONE) {
+            dto.setDownloadUrl("/api/v1/pdf/jobs/" + job.id + "/download");
+        }
+        return dto;
+    }
+
+    private static String jobId(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}", file, e);
+        }
+    }
+
+    private static class ReportJob {
+        private final String id;
+        private final String key;
+        private final User user;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile Path file;
+        private volatile String error;
+
+        private ReportJob(String id, String key, User user) {
+            this.id = id;
+            this.key = key;
+            this.user = user;
+        }
+    }
+
+    // the executor queue orders tasks by deadline, then by submission
+    private class ReportTask implements Runnable, Comparable<ReportTask> {
+        private final ReportJob job;
+        private final long deadline;
+        private final long order = sequence.incrementAndGet();
+
+        private ReportTask(ReportJob job, long deadline) {
+            this.job = job;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            generate(job);
+        }
+
+        @Override
+        public int compareTo(ReportTask other) {
+            int byDeadline = Long.compare(deadline, other.deadline);
+            return byDeadline != 0 ? byDeadline : Long.compare(order, other.order);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.nineleaps.leaps.service.implementation;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.nineleaps.leaps.config.security.JwtKeyManager;
 import com.nineleaps.leaps.exceptions.OtpValidationException;
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.service.SmsServiceInterface;
@@ -15,12 +16,7 @@ import org.springframework.stereotype.Service;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.transaction.Transactional;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -37,6 +33,7 @@ public class SmsServiceImpl implements SmsServiceInterface {
     private String fromNumber;
     private final UserServiceInterface userServiceInterface;
     private final SecurityUtility securityUtility;
+    private final JwtKeyManager jwtKeyManager;
     private Map<String, Integer> otpMap = new HashMap<>();
     private static final int MIN = 100000;
     private static final int MAX = 999999;
@@ -66,10 +63,7 @@ public class SmsServiceImpl implements SmsServiceInterface {
 
     @Override
     public void generateToken(HttpServletResponse response, HttpServletRequest request, String phoneNumber) throws IOException {
-        String secretFilePath = "Desktop/leaps/secret/secret.txt";
-        String absolutePath = System.getProperty("user.home") + File.separator + secretFilePath;
-        String secret = securityUtility.readSecretFromFile(absolutePath);
-        Algorithm algorithm = Algorithm.HMAC256(secret.getBytes());
+        Algorithm algorithm = jwtKeyManager.algorithm();
         String role = user(phoneNumber).getRole().toString();
         String[] roles = new String[]{role};
         String email = user(phoneNumber).getEmail();
@@ -1,28 +1,71 @@
 package com.nineleaps.leaps.service.implementation;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.PutObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
-import com.amazonaws.util.IOUtils;
+import com.nineleaps.leaps.cache.ImageDiskCache;
+import com.nineleaps.leaps.cache.LruCache;
+import com.nineleaps.leaps.dto.StoredFileDto;
+import com.nineleaps.leaps.enums.ImageSize;
+import com.nineleaps.leaps.exceptions.CustomException;
+import com.nineleaps.leaps.exceptions.RuntimeCustomException;
+import com.nineleaps.leaps.model.StoredFile;
+import com.nineleaps.leaps.repository.ProductUrlRepository;
+import com.nineleaps.leaps.repository.StoredFileRepository;
+import com.nineleaps.leaps.repository.UserRepository;
+import com.nineleaps.leaps.service.ImageServiceInterface;
 import com.nineleaps.leaps.service.StorageServiceInterface;
+import com.nineleaps.leaps.storage.StorageBackend;
+import com.nineleaps.leaps.storage.StoredObject;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.transaction.Transactional;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.util.Objects;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import static com.nineleaps.leaps.LeapsApplication.NGROK;
 
@@ -32,13 +75,75 @@ import static com.nineleaps.leaps.LeapsApplication.NGROK;
 @Transactional
 public class StorageServiceImpl implements StorageServiceInterface {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // keys are the content hash, or a millisecond timestamp in front of the name for older uploads, and variants keep
+    // either; what is stored under such a key never changes
+    private static final Pattern IMMUTABLE_KEY = Pattern.compile("[0-9a-f]{64}(__\\w+)?(\\.\\w+)?|\\d{13}_.+");
+
+    private static final int SWEEP_BATCH = 100;
+
     String baseUrl = NGROK;
 
-    @Value("${application.bucket.name}")
-    String bucketName;
+    @Autowired
+    StorageBackend storageBackend;
+
+    @Autowired
+    ImageDiskCache imageDiskCache;
+
+    @Autowired
+    ImageServiceInterface imageService;
+
+    @Autowired
+    ProductUrlRepository productUrlRepository;
+
+    @Autowired
+    UserRepository userRepository;
 
     @Autowired
-    AmazonS3 s3Client;
+    StoredFileRepository storedFileRepository;
+
+    // how long a key handed out by an upload is kept even though nothing points at it yet
+    @Value("${leaps.storage.dedup.grace:PT24H}")
+    Duration issuedKeyGrace;
+
+    // downloads are copied stream to stream, a heap buffer per download is all the copy needs
+    @Value("${leaps.storage.download.buffer-size:65536}")
+    int downloadBufferSize;
+
+    @Value("${leaps.image.variants.missing-max-entries:10000}")
+    int missingVariantsMaxEntries;
+
+    // how long a view remembers that a variant was never rendered and serves the original without asking storage
+    @Value("${leaps.image.variants.missing-ttl:PT10M}")
+    Duration missingVariantsTtl;
+
+    @Value("${leaps.storage.upload.pool-size:8}")
+    int uploadPoolSize;
+
+    @Value("${leaps.storage.upload.per-request:4}")
+    int uploadsPerRequest;
+
+    // shared by all requests; when it is full the request thread uploads the file itself
+    ThreadPoolExecutor uploadPool;
+
+    // variant keys that storage did not have, older uploads and files that are not images have none
+    LruCache<String, Boolean> missingVariants;
+
+    @PostConstruct
+    void createMissingVariantsCache() {
+        missingVariants = new LruCache<>(missingVariantsMaxEntries, missingVariantsTtl);
+    }
+
+    @PostConstruct
+    void createUploadExecutors() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        uploadPool = new ThreadPoolExecutor(uploadPoolSize, uploadPoolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(uploadPoolSize * 4),
+                runnable -> new Thread(runnable, "storage-upload-" + threadNumber.incrementAndGet()), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
     // private method to determine Content type
     String determineContentType(String fileName) {
@@ -56,76 +161,449 @@ public class StorageServiceImpl implements StorageServiceInterface {
     }
 
 
-    // private method to convert multipart file to file
-    File convertMultiPartFileToFile(MultipartFile file) {
-        File convertedFile = new File(Objects.requireNonNull(file.getOriginalFilename()));
-        try (FileOutputStream fos = new FileOutputStream(convertedFile)) {
-            byte[] fileBytes = file.getBytes();
-            fos.write(fileBytes);
+    // upload file to storage
+    public String uploadFile(MultipartFile file) {
+        return viewUrl(upload(file));
+    }
+
+    // uploads up to the per request limit at once on the shared upload pool, urls come back in the order of the files.
+    // the first failure stops the files not yet started and waits for the running ones. what the batch stored is not
+    // deleted here, an upload elsewhere may have been given the same key; unused keys are swept after the grace period
+    public List<String> uploadFiles(MultipartFile[] files) {
+        String[] keys = new String[files.length];
+        AtomicBoolean aborted = new AtomicBoolean();
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(uploadPool);
+        List<Future<Integer>> futures = new ArrayList<>();
+        int submitted = 0;
+        try {
+            for (int done = 0; done < files.length; done++) {
+                while (submitted < files.length && submitted - done < uploadsPerRequest) {
+                    int index = submitted++;
+                    futures.add(completionService.submit(() -> {
+                        if (!aborted.get()) {
+                            keys[index] = upload(files[index]);
+                        }
+                        return index;
+                    }));
+                }
+                completionService.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortUploads(futures, aborted);
+            throw new RuntimeCustomException("Upload was interrupted");
+        } catch (ExecutionException e) {
+            log.error("Upload batch failed", e.getCause());
+            abortUploads(futures, aborted);
+            throw new RuntimeCustomException("Could not upload the files");
+        }
+        List<String> urls = new ArrayList<>();
+        for (String key : keys) {
+            urls.add(viewUrl(key));
+        }
+        return urls;
+    }
+
+    // the key is the sha-256 of the content, so a file that is already stored is not sent again. the key is recorded as
+    // issued before storage is asked whether it exists, and a delete holds that record while it removes the object, so
+    // an upload either sees the object gone and stores it again or keeps the delete from happening.
+    // streamed from the request with a known length, no further copy is made. image variants render while the
+    // original uploads and are stored next to it
+    private String upload(MultipartFile file) {
+        long start = System.currentTimeMillis();
+        String fileName;
+        try {
+            fileName = contentKey(file);
+        } catch (IOException e) {
+            log.error("Error reading uploaded file {}", file.getOriginalFilename(), e);
+            throw new RuntimeCustomException("Could not read the uploaded file");
+        }
+        storedFileRepository.recordIssued(fileName, LocalDateTime.now());
+        if (storageBackend.exists(fileName)) {
+            log.info("Upload of {} ({} bytes) is already stored as {}", file.getOriginalFilename(), file.getSize(), fileName);
+            return fileName;
+        }
+        Future<Map<ImageSize, byte[]>> variants = imageService.renderVariants(fileName, file);
+        try (InputStream inputStream = file.getInputStream()) {
+            storageBackend.putObject(fileName, inputStream, file.getSize(), determineContentType(fileName));
+            storeVariants(fileName, variants.get());
+        } catch (InterruptedIOException e) {
+            throw new RuntimeCustomException("Upload was interrupted");
         } catch (IOException e) {
-            log.error("Error converting multipartFile to file", e);
+            log.error("Error reading uploaded file {}", file.getOriginalFilename(), e);
+            throw new RuntimeCustomException("Could not read the uploaded file");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeCustomException("Upload was interrupted");
+        } catch (ExecutionException e) {
+            // rendering failures are logged and swallowed by the image service, this is a cancelled render
+            throw new RuntimeCustomException("Could not render the image variants");
+        } finally {
+            variants.cancel(true);
         }
-        return convertedFile;
+        log.info("Uploaded {} ({} bytes) in {} ms", fileName, file.getSize(), System.currentTimeMillis() - start);
+        return fileName;
     }
 
+    // hex sha-256 of the content plus the lower case extension of the original name. the multipart file is already
+    // on local disk or in memory, hashing it is a local read before anything goes over the network
+    private static String contentKey(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        StringBuilder key = new StringBuilder(72);
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
+        if (extension != null && !extension.isEmpty()) {
+            key.append('.').append(extension.toLowerCase());
+        }
+        return key.toString();
+    }
 
+    // the original may already have been handed to another upload, so a failed variant is not a failed upload;
+    // views of that size fall back to the original
+    private void storeVariants(String fileName, Map<ImageSize, byte[]> variants) {
+        for (Map.Entry<ImageSize, byte[]> variant : variants.entrySet()) {
+            try {
+                putBytes(variant.getKey().keyFor(fileName), variant.getValue());
+                missingVariants.remove(variant.getKey().keyFor(fileName));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not store the {} variant of {}", variant.getKey(), fileName, e);
+            }
+        }
+    }
 
-    // upload file to s3 cloud AWS storage
-    public String uploadFile(MultipartFile file) {
-        File fileObj = convertMultiPartFileToFile(file);
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        s3Client.putObject(new PutObjectRequest(bucketName, fileName, fileObj));
-        try {
-            Files.delete(fileObj.toPath());
-        } catch (IOException e) {
-            log.error(String.valueOf(e));
+    private void putBytes(String key, byte[] bytes) throws IOException {
+        storageBackend.putObject(key, new ByteArrayInputStream(bytes), bytes.length, determineContentType(key));
+    }
+
+    // tasks are not cancelled: a cancelled task reports done at once while its thread may still be uploading. every task
+    // is waited for, even when this thread was interrupted, so nothing of the batch is still running when it fails
+    private void abortUploads(List<Future<Integer>> futures, AtomicBoolean aborted) {
+        aborted.set(true);
+        boolean interrupted = Thread.interrupted();
+        for (Future<Integer> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // failed, nothing of it to keep
+                    break;
+                }
+            }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String viewUrl(String fileName) {
         return UriComponentsBuilder.fromHttpUrl(baseUrl).path("/api/v1/file/view/").path(fileName).toUriString();
     }
 
-    // download the image from s3
-    public byte[] downloadFile(String fileName) {
-        S3Object s3Object = s3Client.getObject(bucketName, fileName);
-        S3ObjectInputStream inputStream = s3Object.getObjectContent();
+    @PreDestroy
+    public void shutdown() {
+        uploadPool.shutdownNow();
+    }
 
-        try {
-            return IOUtils.toByteArray(inputStream);
+    // copies bytes start to end, both inclusive, to the stream without holding the file in memory. local files and
+    // storage objects alike are read through a heap buffer of leaps.storage.download.buffer-size bytes, one per call
+    public void downloadFile(String fileName, long start, long end, OutputStream outputStream) throws IOException {
+        long requested = System.nanoTime();
+        long firstByte = 0;
+        long copied = 0;
+        try (InputStream inputStream = openRange(fileName, start, end)) {
+            byte[] buffer = new byte[downloadBufferSize];
+            long remaining = end - start + 1;
+            int read;
+            while (remaining > 0 && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) >= 0) {
+                outputStream.write(buffer, 0, read);
+                copied += read;
+                remaining -= read;
+                if (firstByte == 0 && copied > 0) {
+                    firstByte = System.nanoTime();
+                }
+            }
+        }
+        log.info("Downloaded {} ({} bytes), first byte after {} ms, done in {} ms", fileName, copied,
+                TimeUnit.NANOSECONDS.toMillis((firstByte == 0 ? System.nanoTime() : firstByte) - requested),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requested));
+    }
 
-        } catch (IOException e) {
-            log.error(String.valueOf(e));
+    // the bytes start to end, both inclusive, from the local file when the backend keeps one and from storage otherwise
+    private InputStream openRange(String fileName, long start, long end) throws IOException {
+        Path localFile = storageBackend.localPath(fileName);
+        if (localFile != null) {
+            FileChannel channel = FileChannel.open(localFile, StandardOpenOption.READ);
+            return Channels.newInputStream(channel.position(start));
+        }
+        StoredObject storedObject = storageBackend.getObject(fileName, start, end);
+        if (storedObject == null) {
+            throw new FileNotFoundException(fileName);
         }
-        return new byte[0];
+        return storedObject.getContent();
     }
 
-    //delete the file from s3
+    // from the image cache when the file is there, otherwise a head request to storage
+    public StoredFileDto getFileMetadata(String fileName) {
+        ImageDiskCache.CachedImage cachedImage = imageDiskCache.get(fileName);
+        if (cachedImage != null) {
+            return storedFile(fileName, cachedImage.getSize(), cachedImage.getETag(), cachedImage.getLastModified());
+        }
+        StoredObject storedObject = storageBackend.headObject(fileName);
+        if (storedObject == null) {
+            throw new CustomException("File not found");
+        }
+        return storedFile(fileName, storedObject.getSize(), storedObject.getETag(), storedObject.getLastModified());
+    }
+
+    //delete the file and its variants from storage, unless a product or a profile still shows it or an upload was
+    //given its key within the grace period; those are left to the sweep
     public String deleteFile(String fileName) {
-        s3Client.deleteObject(bucketName, fileName);
+        Optional<StoredFile> issued = storedFileRepository.lockByStorageKey(fileName);
+        if (productUrlRepository.existsByStorageKey(fileName) || userRepository.existsByProfileImageKey(fileName)) {
+            return fileName + " is still in use";
+        }
+        if (issued.isPresent() && issued.get().getIssuedAt().isAfter(LocalDateTime.now().minus(issuedKeyGrace))) {
+            return fileName + " was uploaded recently, it is removed once it has been unused for " + issuedKeyGrace.toHours() + " hours";
+        }
+        for (ImageSize imageSize : ImageSize.values()) {
+            storageBackend.deleteObject(imageSize.keyFor(fileName));
+            imageDiskCache.invalidate(imageSize.keyFor(fileName));
+        }
+        issued.ifPresent(storedFileRepository::delete);
         return fileName + " removed ...";
     }
 
+    // removes uploads whose key was handed out before the grace period and that nothing points at. keys in use stop
+    // being tracked, the references keep them from being deleted
+    @Scheduled(fixedDelayString = "${leaps.storage.dedup.sweep-interval-ms:3600000}")
+    public void sweepUnusedUploads() {
+        List<String> keys = storedFileRepository.findKeysIssuedBefore(LocalDateTime.now().minus(issuedKeyGrace), PageRequest.of(0, SWEEP_BATCH));
+        for (String key : keys) {
+            if (productUrlRepository.existsByStorageKey(key) || userRepository.existsByProfileImageKey(key)) {
+                storedFileRepository.deleteById(key);
+            } else {
+                log.info("Sweeping unused upload {}: {}", key, deleteFile(key));
+            }
+        }
+    }
 
-    //view the file from s3
-    public void viewFile(String fileName, HttpServletResponse response) {
-        try {
-            S3Object s3Object = s3Client.getObject(bucketName, fileName);
-            S3ObjectInputStream inputStream = s3Object.getObjectContent();
+    // urls saved before the keys had their own columns
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissingStorageKeys() {
+        int filled = productUrlRepository.fillMissingStorageKeys() + userRepository.fillMissingProfileImageKeys();
+        if (filled > 0) {
+            log.info("Filled in the storage key of {} image urls", filled);
+        }
+    }
 
-            // Set the response headers
-            String contentType = determineContentType(fileName);
-            response.setHeader(HttpHeaders.CONTENT_TYPE, contentType);
+    //view a variant of the file, the original when the variant was never rendered. the original stands in for the
+    //variant under the variant's url, so it is not cached as immutable
+    public void viewFile(String fileName, String size, HttpServletRequest request, HttpServletResponse response) {
+        String key = ImageSize.fromParam(size).keyFor(fileName);
+        if (key.equals(fileName) || imageDiskCache.get(key) != null) {
+            view(key, false, request, response);
+            return;
+        }
+        if (missingVariants.get(key) == null && storageBackend.exists(key)) {
+            view(key, false, request, response);
+            return;
+        }
+        missingVariants.put(key, Boolean.TRUE);
+        view(fileName, true, request, response);
+    }
 
 
-            OutputStream outputStream = response.getOutputStream();
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+    //view the file. a file the backend keeps on this machine is sent straight from its own file, anything else
+    //from the local image cache when it has it and from storage otherwise.
+    //answers conditional requests with 304 and a single byte range with 206
+    public void viewFile(String fileName, HttpServletRequest request, HttpServletResponse response) {
+        view(fileName, false, request, response);
+    }
+
+    private void view(String fileName, boolean standIn, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            Path localFile = storageBackend.localPath(fileName);
+            if (localFile != null) {
+                viewLocalFile(fileName, standIn, localFile, request, response);
+                return;
+            }
+            ImageDiskCache.CachedImage cachedImage = imageDiskCache.get(fileName);
+            if (cachedImage == null && request.getHeader(HttpHeaders.RANGE) != null) {
+                // part of a file we do not have, ask storage for just that part
+                viewFromStorage(fileName, standIn, request, response);
+                return;
+            }
+            if (cachedImage == null) {
+                try (ImageDiskCache.Fill fill = imageDiskCache.beginFill(fileName);
+                     StoredObject storedObject = storageBackend.getObject(fileName)) {
+                    if (storedObject == null) {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                        return;
+                    }
+                    cachedImage = imageDiskCache.put(fill, storedObject.getContent(), storedObject.getETag(), storedObject.getLastModified());
+                }
+                if (cachedImage == null) {
+                    // invalidated while we were reading it, storage has the current state
+                    viewFromStorage(fileName, standIn, request, response);
+                    return;
+                }
             }
-            inputStream.close();
-            outputStream.flush();
+            StoredFileDto storedFile = viewed(fileName, standIn, cachedImage.getSize(), cachedImage.getETag(), cachedImage.getLastModified());
+            long[] span = responseSpan(storedFile, request, response);
+            if (span == null) {
+                return;
+            }
+            if (cachedImage.getBytes() != null) {
+                response.setContentLengthLong(span[1] - span[0] + 1);
+                response.getOutputStream().write(cachedImage.getBytes(), (int) span[0], (int) (span[1] - span[0] + 1));
+                return;
+            }
+            sendFile(cachedImage.getFile(), span[0], span[1] + 1, request, response);
         } catch (IOException e) {
-            log.error("Amazon S3 Network Error");
+            log.error("Could not send {}", fileName, e);
+            if (!response.isCommitted()) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    private void viewLocalFile(String fileName, boolean standIn, Path localFile, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StoredObject storedObject = storageBackend.headObject(fileName);
+        if (storedObject == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long[] span = responseSpan(viewed(fileName, standIn, storedObject.getSize(), storedObject.getETag(), storedObject.getLastModified()), request, response);
+        if (span != null) {
+            sendFile(localFile, span[0], span[1] + 1, request, response);
+        }
+    }
+
+    // straight from storage without caching, the whole file or the requested range of it
+    private void viewFromStorage(String fileName, boolean standIn, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StoredObject head = storageBackend.headObject(fileName);
+        if (head == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StoredFileDto storedFile = viewed(fileName, standIn, head.getSize(), head.getETag(), head.getLastModified());
+        long[] span = responseSpan(storedFile, request, response);
+        if (span == null) {
+            return;
         }
+        try (StoredObject storedObject = storageBackend.getObject(storedFile.getFileName(), span[0], span[1])) {
+            if (storedObject == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            response.setContentLengthLong(span[1] - span[0] + 1);
+            storedObject.getContent().transferTo(response.getOutputStream());
+        }
+    }
+
+    // the first and last byte to send, after the status and headers for them are set; null when the response is
+    // already complete, a 304 or a 416
+    private long[] responseSpan(StoredFileDto storedFile, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (notModified(storedFile, request, response)) {
+            return null;
+        }
+        HttpRange range = requestedRange(storedFile, request);
+        if (range == null) {
+            return new long[]{0, storedFile.getContentLength() - 1};
+        }
+        if (!satisfiable(range, storedFile, response)) {
+            return null;
+        }
+        long start = range.getRangeStart(storedFile.getContentLength());
+        long end = range.getRangeEnd(storedFile.getContentLength());
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + storedFile.getContentLength());
+        return new long[]{start, end};
+    }
+
+    // sets the validators and caching headers, and sends 304 when the client copy is still current
+    private boolean notModified(StoredFileDto storedFile, HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CONTENT_TYPE, storedFile.getContentType());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(storedFile).getHeaderValue());
+        return new ServletWebRequest(request, response).checkNotModified(quotedETag(storedFile), storedFile.getLastModified());
+    }
+
+    // one range of a file the client still has the same version of; anything else, a malformed header included,
+    // gets the whole file
+    public HttpRange requestedRange(StoredFileDto storedFile, HttpServletRequest request) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader == null || (ifRange != null && !ifRange.equals(quotedETag(storedFile)))) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean satisfiable(HttpRange range, StoredFileDto storedFile, HttpServletResponse response) throws IOException {
+        try {
+            range.getRangeStart(storedFile.getContentLength());
+            return true;
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + storedFile.getContentLength());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return false;
+        }
+    }
+
+    // lets tomcat hand the file to the socket with sendfile when the connector supports it, else copies it channel to channel
+    private void sendFile(Path file, long start, long end, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            response.setContentLengthLong(end - start);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end);
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    public CacheControl cacheControl(StoredFileDto storedFile) {
+        return storedFile.isImmutable() ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable() : CacheControl.noCache();
+    }
+
+    private StoredFileDto storedFile(String fileName, long contentLength, String eTag, long lastModified) {
+        return new StoredFileDto(fileName, determineContentType(fileName), contentLength, eTag, lastModified, IMMUTABLE_KEY.matcher(fileName).matches());
+    }
+
+    // a stand-in is replaced once the variant is rendered, the client has to revalidate it
+    private StoredFileDto viewed(String fileName, boolean standIn, long contentLength, String eTag, long lastModified) {
+        StoredFileDto storedFile = storedFile(fileName, contentLength, eTag, lastModified);
+        storedFile.setImmutable(storedFile.isImmutable() && !standIn);
+        return storedFile;
+    }
+
+    private static String quotedETag(StoredFileDto storedFile) {
+        return "\"" + storedFile.getETag() + "\"";
     }
 }
 
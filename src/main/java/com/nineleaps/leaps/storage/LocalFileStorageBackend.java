@@ -0,0 +1,170 @@
+package com.nineleaps.leaps.storage;
+
+import com.nineleaps.leaps.exceptions.CustomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+
+//objects as files under one directory, for single node deployments and running without s3.
+//files are written to a temp file and renamed into place, so readers see a whole object or none.
+//a key lives in two levels of directories named after the start of its md5, which keeps directories small
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "leaps.storage.backend", havingValue = "local")
+public class LocalFileStorageBackend implements StorageBackend {
+
+    private final Path root;
+    private final Path tempDirectory;
+
+    public LocalFileStorageBackend(@Value("${leaps.storage.local.directory}") String directory) throws IOException {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        // on the same file system as the objects, a rename out of it is atomic
+        this.tempDirectory = Files.createDirectories(root.resolve(".tmp"));
+        log.info("Storing files under {}", root);
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength, String contentType) throws IOException {
+        Path file = fileFor(key);
+        Path partFile = tempDirectory.resolve(UUID.randomUUID() + ".part");
+        try {
+            long written;
+            try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                written = channel.transferFrom(Channels.newChannel(inputStream), 0, contentLength);
+            }
+            if (written != contentLength) {
+                throw new IOException("Expected " + contentLength + " bytes for " + key + " but got " + written);
+            }
+            Files.createDirectories(file.getParent());
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    @Override
+    public StoredObject headObject(String key) {
+        try {
+            return storedObject(key, fileFor(key), null);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the attributes of " + key, e);
+        }
+    }
+
+    @Override
+    public StoredObject getObject(String key) throws IOException {
+        return getObject(key, 0, Long.MAX_VALUE - 1);
+    }
+
+    @Override
+    public StoredObject getObject(String key, long start, long end) throws IOException {
+        Path file = fileFor(key);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            long length = Math.min(end + 1, channel.size()) - start;
+            return storedObject(key, file, new RangeInputStream(channel, start, Math.max(0, length)));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(fileFor(key));
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException e) {
+            log.warn("Could not delete {}", key, e);
+        }
+    }
+
+    @Override
+    public Path localPath(String key) {
+        Path file = fileFor(key);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private Path fileFor(String key) {
+        if (key.isEmpty() || key.startsWith(".") || key.contains("/") || key.contains("\\")) {
+            throw new CustomException("Invalid file name");
+        }
+        String hash = DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(key);
+    }
+
+    // files are only ever replaced whole, so their size and modification time identify the content
+    private static StoredObject storedObject(String key, Path file, InputStream content) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = Long.toHexString(lastModified) + "-" + Long.toHexString(attributes.size());
+        return new StoredObject(key, attributes.size(), eTag, lastModified, content);
+    }
+
+    // reads part of a file with positional reads, and closes the channel with the stream
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        RangeInputStream(FileChannel channel, long position, long remaining) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, remaining)), position);
+            if (read < 0) {
+                remaining = 0;
+                return -1;
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.nineleaps.leaps.storage;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+
+//objects in the s3 bucket. large uploads go up as multipart uploads
+@Component
+@ConditionalOnProperty(name = "leaps.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3StorageBackend implements StorageBackend {
+
+    private static final int NOT_FOUND = 404;
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final long multipartThreshold;
+    private final TransferManager transferManager;
+
+    public S3StorageBackend(AmazonS3 s3Client,
+                            @Value("${application.bucket.name}") String bucketName,
+                            @Value("${leaps.storage.multipart-threshold-bytes:8388608}") long multipartThreshold,
+                            @Value("${leaps.storage.multipart-part-size-bytes:5242880}") long multipartPartSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.multipartThreshold = multipartThreshold;
+        this.transferManager = TransferManagerBuilder.standard()
+                .withS3Client(s3Client)
+                .withMultipartUploadThreshold(multipartThreshold)
+                .withMinimumUploadPartSize(multipartPartSize)
+                .build();
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength, String contentType) throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        metadata.setContentType(contentType);
+        if (contentLength < multipartThreshold) {
+            s3Client.putObject(new PutObjectRequest(bucketName, key, inputStream, metadata));
+            return;
+        }
+        try {
+            // sent in parts, only one part is buffered at a time
+            transferManager.upload(bucketName, key, inputStream, metadata).waitForCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload of " + key + " was interrupted");
+        }
+    }
+
+    @Override
+    public StoredObject headObject(String key) {
+        try {
+            return storedObject(key, s3Client.getObjectMetadata(bucketName, key), null);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public StoredObject getObject(String key) {
+        return get(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public StoredObject getObject(String key, long start, long end) {
+        return get(new GetObjectRequest(bucketName, key).withRange(start, end));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return s3Client.doesObjectExist(bucketName, key);
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        s3Client.deleteObject(bucketName, key);
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // the s3 client is a shared bean, only the transfer threads belong to this backend
+        transferManager.shutdownNow(false);
+    }
+
+    private StoredObject get(GetObjectRequest request) {
+        S3Object s3Object;
+        try {
+            s3Object = s3Client.getObject(request);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+        return storedObject(request.getKey(), s3Object.getObjectMetadata(), s3Object.getObjectContent());
+    }
+
+    private static StoredObject storedObject(String key, ObjectMetadata metadata, InputStream content) {
+        // a ranged get reports the length of the range, content-range carries the size of the object
+        long size = metadata.getContentRange() == null ? metadata.getContentLength() : metadata.getInstanceLength();
+        return new StoredObject(key, size, metadata.getETag(), metadata.getLastModified().getTime(), content);
+    }
+}
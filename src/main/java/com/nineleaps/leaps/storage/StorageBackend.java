@@ -0,0 +1,27 @@
+package com.nineleaps.leaps.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+//where uploaded files are kept. keys are flat file names, objects are written once and replaced whole
+public interface StorageBackend {
+
+    void putObject(String key, InputStream inputStream, long contentLength, String contentType) throws IOException;
+
+    // metadata only, null when there is no such object
+    StoredObject headObject(String key);
+
+    // the whole object with its content, null when there is no such object
+    StoredObject getObject(String key) throws IOException;
+
+    // bytes start to end, both inclusive
+    StoredObject getObject(String key, long start, long end) throws IOException;
+
+    boolean exists(String key);
+
+    void deleteObject(String key);
+
+    // the file holding the object when it is on this machine, so it can be sent without copying; null otherwise
+    Path localPath(String key);
+}
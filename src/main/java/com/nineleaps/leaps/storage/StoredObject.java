@@ -0,0 +1,26 @@
+package com.nineleaps.leaps.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+//an object's metadata and, when it was read with a get, its content. size is the size of the whole object
+@Getter
+@AllArgsConstructor
+public class StoredObject implements Closeable {
+    private final String key;
+    private final long size;
+    private final String eTag;
+    private final long lastModified;
+    private final InputStream content;
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            content.close();
+        }
+    }
+}
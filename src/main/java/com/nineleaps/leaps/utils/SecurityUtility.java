@@ -4,6 +4,7 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.nineleaps.leaps.config.security.JwtKeyManager;
 import com.nineleaps.leaps.model.RefreshToken;
 import com.nineleaps.leaps.model.User;
 import com.nineleaps.leaps.repository.RefreshTokenRepository;
@@ -15,12 +16,7 @@ import org.springframework.web.client.HttpClientErrorException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
@@ -31,6 +27,7 @@ import java.util.Objects;
 @AllArgsConstructor
 public class SecurityUtility {
     private final UserServiceInterface userServiceInterface;
+    private final JwtKeyManager jwtKeyManager;
     private RefreshTokenRepository refreshTokenRepository;
 
     public void setRefreshTokenRepository(RefreshTokenRepository refreshTokenRepository) {
@@ -64,10 +61,7 @@ public class SecurityUtility {
     public String updateAccessToken(String email2, HttpServletRequest request) throws IOException {
         RefreshToken refreshToken = refreshTokenRepository.findByEmail(email2);
         String token = refreshToken.getToken();
-        String secretFilePath = "/Desktop"+"/leaps"+"/secret"+"/secret.txt";
-        String absolutePath = System.getProperty("user.home") + File.separator + secretFilePath;
-        String secret = readSecretFromFile(absolutePath);
-        Algorithm algorithm = Algorithm.HMAC256(secret.getBytes());
+        Algorithm algorithm = jwtKeyManager.algorithm();
         DecodedJWT decodedRefreshToken = JWT.decode(token);
         String email = decodedRefreshToken.getSubject();
         User user = userServiceInterface.getUser(email);
@@ -90,10 +84,7 @@ public class SecurityUtility {
         String token = refreshToken.getToken();
         if(!isRefreshTokenExpired(token)){
             if(Objects.equals(token, tokenToCheck)){
-                String secretFilePath = "/Desktop"+"/leaps"+"/secret"+"/secret.txt";
-                String absolutePath = System.getProperty("user.home") + File.separator + secretFilePath;
-                String secret = readSecretFromFile(absolutePath);
-                Algorithm algorithm = Algorithm.HMAC256(secret.getBytes());
+                Algorithm algorithm = jwtKeyManager.algorithm();
                 DecodedJWT decodedRefreshToken = JWT.decode(token);
                 String email = decodedRefreshToken.getSubject();
                 User user = userServiceInterface.getUser(email);
@@ -117,12 +108,6 @@ public class SecurityUtility {
         return "Refresh Token In Database Expired , Login Again !";
     }
 
-    public String readSecretFromFile(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
-            return reader.readLine();
-        }
-    }
 
 
 }
@@ -2,6 +2,7 @@ package com.nineleaps.leaps.utils;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.nineleaps.leaps.config.security.JwtKeyManager;
 import com.nineleaps.leaps.enums.Role;
 import com.nineleaps.leaps.model.User;
 import lombok.AllArgsConstructor;
@@ -9,12 +10,7 @@ import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
@@ -28,15 +24,13 @@ import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 public class SwitchProfile {
 
     private final Helper helper;
+    private final JwtKeyManager jwtKeyManager;
 
     public void generateTokenForSwitchProfile(HttpServletResponse response, Role profile, HttpServletRequest request) throws IOException {
         String authorizationHeader = request.getHeader(AUTHORIZATION);
         String token = authorizationHeader.substring(7);
         User user = helper.getUser(token);
-        String secretFilePath = "/Desktop"+"/leaps"+"/secret"+"/secret.txt";
-        String absolutePath = System.getProperty("user.home") + File.separator + secretFilePath;
-        String secret = readSecretFromFile(absolutePath);
-        Algorithm algorithm = Algorithm.HMAC256(secret.getBytes());
+        Algorithm algorithm = jwtKeyManager.algorithm();
         String role = profile.toString();
         String[] roles = new String[]{role};
         LocalDateTime now = LocalDateTime.now();
@@ -49,11 +43,4 @@ public class SwitchProfile {
                 .sign(algorithm);
         response.setHeader("access_token", accessToken);
     }
-
-    private String readSecretFromFile(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
-            return reader.readLine();
-        }
-    }
 }
@@ -0,0 +1,278 @@
+package com.nineleaps.leaps.service.implementation;
+
+import com.nineleaps.leaps.analytics.DashboardAnalyticsEngine;
+import com.nineleaps.leaps.analytics.OrderItemFactStore;
+import com.nineleaps.leaps.cache.DashboardCache;
+import com.nineleaps.leaps.dto.dashboard.OrderItemsPageDto;
+import com.nineleaps.leaps.enums.Role;
+import com.nineleaps.leaps.enums.TimeResolution;
+import com.nineleaps.leaps.model.OwnerDailyStats;
+import com.nineleaps.leaps.model.OwnerMonthlyStats;
+import com.nineleaps.leaps.model.User;
+import com.nineleaps.leaps.model.categories.Category;
+import com.nineleaps.leaps.model.categories.SubCategory;
+import com.nineleaps.leaps.model.orders.Order;
+import com.nineleaps.leaps.model.orders.OrderItem;
+import com.nineleaps.leaps.model.product.Product;
+import com.nineleaps.leaps.service.CartServiceInterface;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//every dashboard endpoint issues the same number of statements for an owner with one order item as for an owner with
+//many items, products and borrowers; a lazy association touched per row would show up as a difference
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:dashboard;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "leaps.analytics.fact-store.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DashboardServiceImpl.class, OrderServiceImpl.class, DashboardAnalyticsEngine.class, DashboardCache.class, OrderItemFactStore.class})
+class DashboardStatementCountTest {
+
+    private static final LocalDateTime FIRST_RENTAL = LocalDateTime.of(2023, 1, 2, 10, 0);
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DashboardServiceImpl dashboardService;
+
+    @Autowired
+    private OrderServiceImpl orderService;
+
+    @Autowired
+    private DashboardCache dashboardCache;
+
+    @MockBean
+    private CartServiceInterface cartService;
+
+    @MockBean
+    private EmailServiceImpl emailService;
+
+    @MockBean
+    private PushNotificationServiceImpl pushNotificationService;
+
+    private Statistics statistics;
+    private User smallOwner;
+    private User largeOwner;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        smallOwner = ownerWithOrderItems("small", 1, 1, 1);
+        largeOwner = ownerWithOrderItems("large", 6, 4, 40);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void ownerViewDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> dashboardService.dashboardOwnerView(owner));
+    }
+
+    @Test
+    void summaryDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> dashboardService.summary(owner));
+    }
+
+    @Test
+    void topProductsDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> dashboardService.topProducts(owner, 5, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+    }
+
+    @Test
+    void earningsSeriesDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> dashboardService.earningsSeries(owner, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31), TimeResolution.WEEK));
+    }
+
+    @Test
+    void monthlyEarningsSeriesDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> dashboardService.earningsSeries(owner, LocalDate.of(2023, 1, 15), LocalDate.of(2023, 10, 20), TimeResolution.MONTH));
+    }
+
+    @Test
+    void analyticsDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> dashboardService.analytics(owner));
+    }
+
+    @Test
+    void yearlyAnalyticsDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> orderService.onClickDashboardYearWiseData(owner));
+    }
+
+    @Test
+    void monthlyOrderItemsDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> orderService.getOrderedItemsByMonth(owner));
+    }
+
+    @Test
+    void subcategoriesAnalyticsDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> orderService.getOrderItemsBySubCategories(owner));
+    }
+
+    @Test
+    void categoriesAnalyticsDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> orderService.getOrderItemsByCategories(owner));
+    }
+
+    @Test
+    void dateSelectorDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> orderService.getOrderedItemsByMonthBwDates(owner, FIRST_RENTAL.minusDays(1), FIRST_RENTAL.plusYears(1),
+                null, null, 1000));
+    }
+
+    @Test
+    void dateSelectorPagesCarryTheNextCursor() {
+        List<LocalDateTime> seen = new ArrayList<>();
+        LocalDateTime cursorDate = null;
+        Long cursorId = null;
+        OrderItemsPageDto page;
+        do {
+            page = orderService.getOrderedItemsByMonthBwDates(largeOwner, FIRST_RENTAL.minusDays(1), FIRST_RENTAL.plusYears(1), cursorDate, cursorId, 15);
+            page.getOrderItems().values().forEach(orderItems -> orderItems.forEach(orderItem -> seen.add(orderItem.getRentalStartDate())));
+            cursorDate = page.getNextCursorDate();
+            cursorId = page.getNextCursorId();
+            assertEquals(page.isHasMore(), cursorId != null);
+        } while (page.isHasMore());
+        assertEquals(40, seen.size());
+        assertEquals(FIRST_RENTAL, seen.get(0));
+        assertEquals(FIRST_RENTAL.plusDays(7L * 39), seen.get(39));
+    }
+
+    @Test
+    void csvExportDoesNotGrowWithOrderItems() {
+        assertSameStatementCount(owner -> {
+            try {
+                dashboardService.writeOrderItemsCsv(owner, new StringWriter());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void assertSameStatementCount(DashboardCall call) {
+        long small = statementsFor(call, smallOwner);
+        long large = statementsFor(call, largeOwner);
+        assertTrue(small > 0, "the endpoint did not reach the database");
+        assertEquals(small, large, "statements for 1 order item vs 40");
+    }
+
+    // from a cold cache and an empty persistence context, as a request would see it
+    private long statementsFor(DashboardCall call, User owner) {
+        dashboardCache.invalidateAll();
+        testEntityManager.clear();
+        statistics.clear();
+        call.run(owner);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User ownerWithOrderItems(String name, int products, int borrowers, int orderItems) {
+        User owner = testEntityManager.persist(new User(name, "Owner", name + "@leaps.test", "9000000000", "secret", Role.OWNER));
+        Category category = new Category();
+        category.setCategoryName(name + " category");
+        category.setDescription("category");
+        category.setImageUrl("/api/v1/file/view/category.png");
+        testEntityManager.persist(category);
+        SubCategory subCategory = new SubCategory();
+        subCategory.setCategory(category);
+        subCategory.setSubcategoryName(name + " subcategory");
+        subCategory.setDescription("subcategory");
+        subCategory.setImageUrl("/api/v1/file/view/subcategory.png");
+        testEntityManager.persist(subCategory);
+        List<Product> ownerProducts = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setName(name + " product " + i);
+            product.setDescription("product");
+            product.setSize("M");
+            product.setPrice(100 + i);
+            product.setQuantity(10);
+            product.setAvailableQuantities(10);
+            product.setUser(owner);
+            product.getCategories().add(category);
+            product.getSubCategories().add(subCategory);
+            ownerProducts.add(testEntityManager.persist(product));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < borrowers; i++) {
+            User borrower = testEntityManager.persist(new User(name + i, "Borrower", name + i + "@leaps.test", "9000000001", "secret", Role.BORROWER));
+            Order order = new Order();
+            order.setUser(borrower);
+            order.setCreateDate(FIRST_RENTAL.minusDays(1));
+            orders.add(testEntityManager.persist(order));
+        }
+        Map<YearMonth, OwnerMonthlyStats> statsByMonth = new HashMap<>();
+        Map<LocalDate, OwnerDailyStats> statsByDay = new HashMap<>();
+        for (int i = 0; i < orderItems; i++) {
+            Product product = ownerProducts.get(i % products);
+            OrderItem orderItem = new OrderItem();
+            orderItem.setName(product.getName());
+            orderItem.setQuantity(1 + i % 3);
+            orderItem.setPrice(product.getPrice());
+            orderItem.setProduct(product);
+            orderItem.setOrder(orders.get(i % borrowers));
+            orderItem.setOwnerId(owner.getId());
+            orderItem.setRentalStartDate(FIRST_RENTAL.plusDays(7L * i));
+            orderItem.setRentalEndDate(FIRST_RENTAL.plusDays(7L * i + 3));
+            orderItem.setImageUrl("/api/v1/file/view/product.png");
+            orderItem.setStatus("ORDER PLACED");
+            testEntityManager.persist(orderItem);
+            // what placing the order would have added to the rollup
+            OwnerMonthlyStats monthlyStats = statsByMonth.computeIfAbsent(YearMonth.from(orderItem.getRentalStartDate()), month -> {
+                OwnerMonthlyStats stats = new OwnerMonthlyStats();
+                stats.setOwnerId(owner.getId());
+                stats.setStatYear(month.getYear());
+                stats.setStatMonth(month.getMonthValue());
+                return stats;
+            });
+            monthlyStats.setOrderItems(monthlyStats.getOrderItems() + 1);
+            monthlyStats.setQuantity(monthlyStats.getQuantity() + orderItem.getQuantity());
+            monthlyStats.setEarnings(monthlyStats.getEarnings() + orderItem.getPrice() * orderItem.getQuantity() * 3);
+            OwnerDailyStats dailyStats = statsByDay.computeIfAbsent(orderItem.getRentalStartDate().toLocalDate(), day -> {
+                OwnerDailyStats stats = new OwnerDailyStats();
+                stats.setOwnerId(owner.getId());
+                stats.setStatDay(day);
+                return stats;
+            });
+            dailyStats.setOrderItems(dailyStats.getOrderItems() + 1);
+            dailyStats.setQuantity(dailyStats.getQuantity() + orderItem.getQuantity());
+            dailyStats.setEarnings(dailyStats.getEarnings() + orderItem.getPrice() * orderItem.getQuantity() * 3);
+        }
+        statsByMonth.values().forEach(testEntityManager::persist);
+        statsByDay.values().forEach(testEntityManager::persist);
+        return owner;
+    }
+
+    private interface DashboardCall {
+        void run(User owner);
+    }
+}